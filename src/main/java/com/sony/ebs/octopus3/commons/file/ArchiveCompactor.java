@@ -0,0 +1,440 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.flows.RepoValue;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Compacts an {@link RepoValue#archive} folder in the background. Every run zips the subfolders older than the compact
+ * age into dated archives, like "20141116T101500000_20141117.zip" for the folder "20141116T101500000", verifies every
+ * archive by reading it back and deletes the folder only then. Archives are then deleted by the retention policy:
+ * the newest archives are kept up to a count, an age and a total size.
+ * <p/>
+ * Runs are scheduled on a single low-priority daemon thread and read and write at most the given rate, so foreground
+ * flows keep the disk, like:
+ * <pre>
+ * ArchiveCompactor compactor = new ArchiveCompactor(Paths.get("/repo/global_sku/score/archive"))
+ *         .withCompactAfter(1, TimeUnit.DAYS)
+ *         .withMaxArchives(30)
+ *         .withThrottle(20 * 1024 * 1024)
+ *         .start(1, TimeUnit.HOURS);
+ * </pre>
+ * Archives are written under a temporary name, so an archive with its final name is always complete, and keep the
+ * last modified time of their folders, so the age of an archive is the age of its content. Folders which cannot be
+ * archived or deleted completely are kept and counted as failed, and other folders are compacted anyway. An existing
+ * archive is never replaced, so a folder left partly deleted is not archived again over its complete archive.
+ */
+public class ArchiveCompactor implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveCompactor.class);
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormat.forPattern("yyyyMMdd").withZoneUTC();
+    private static final String ZIP_EXTENSION = ".zip";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    private final Path folder;
+    private long compactAfterMillis = TimeUnit.DAYS.toMillis(1);
+    private int maxArchives = Integer.MAX_VALUE;
+    private long maxAgeMillis = Long.MAX_VALUE;
+    private long maxBytes = Long.MAX_VALUE;
+    private long bytesPerSecond;
+    private int workers = 1;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private final Object schedulerLock = new Object();
+    private ScheduledThreadPoolExecutor scheduler;
+
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong compactedCount = new AtomicLong();
+    private final AtomicLong deletedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private final AtomicLong processedBytes = new AtomicLong();
+    private volatile Path current;
+    private volatile long lastRunTime;
+    private volatile long lastElapsedTime;
+
+    /**
+     * @param folder archive folder, like "/repo/global_sku/score/archive"
+     */
+    public ArchiveCompactor(Path folder) {
+        this.folder = folder.toAbsolutePath().normalize();
+    }
+
+    /**
+     * @param age  subfolders not modified for this long are zipped; defaults to a day
+     */
+    public ArchiveCompactor withCompactAfter(long age, TimeUnit unit) {
+        this.compactAfterMillis = unit.toMillis(age);
+        return this;
+    }
+
+    /**
+     * @param maxArchives number of newest archives to keep
+     */
+    public ArchiveCompactor withMaxArchives(int maxArchives) {
+        this.maxArchives = maxArchives;
+        return this;
+    }
+
+    /**
+     * @param age archives older than this are deleted
+     */
+    public ArchiveCompactor withMaxAge(long age, TimeUnit unit) {
+        this.maxAgeMillis = unit.toMillis(age);
+        return this;
+    }
+
+    /**
+     * @param maxBytes total size of the newest archives to keep
+     */
+    public ArchiveCompactor withMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * @param bytesPerSecond average rate of reading folders, writing archives and reading them back for verification,
+     *                       counted together; zero for no limit
+     */
+    public ArchiveCompactor withThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * @param workers number of threads compressing a folder; defaults to one
+     * @param level   compression level from 0 to 9
+     */
+    public ArchiveCompactor withCompression(int workers, int level) {
+        this.workers = workers;
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * Runs {@link #compact()} periodically, starting after a period
+     *
+     * @param period time between the end of a run and the start of the next one
+     */
+    public ArchiveCompactor start(long period, TimeUnit unit) {
+        synchronized (schedulerLock) {
+            if (scheduler != null) {
+                throw new IllegalStateException("Compactor of folder [" + folder + "] is already started");
+            }
+            scheduler = newScheduler();
+        }
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    logger.debug("Unable to compact folder [" + folder + "] due to errors", e);
+                }
+            }
+        }, period, period, unit);
+        return this;
+    }
+
+    /**
+     * Stops scheduling; a running compaction stops after its current folder
+     */
+    @Override
+    public void close() {
+        synchronized (schedulerLock) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newScheduler() {
+        return new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "archive-compactor");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Zips aged folders and applies the retention policy once, on the calling thread
+     *
+     * @return archives created as tracked paths, archives deleted as deleted paths, folders which cannot be archived or
+     * deleted as failed paths, and bytes reclaimed by deleted folders
+     */
+    public synchronized FileOperationResult compact() {
+        FileOperationResult result = new FileOperationResult();
+        long start = System.currentTimeMillis();
+        if (!Files.isDirectory(folder)) {
+            result.setMessage("Folder [" + folder + "] is not found");
+            return result;
+        }
+        try {
+            List<Path> folders = new ArrayList<Path>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+                for (Path path : stream) {
+                    String name = path.getFileName().toString();
+                    if (name.endsWith(TEMPORARY_EXTENSION)) {
+                        Files.deleteIfExists(path);
+                    } else if (!name.startsWith(".") && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)
+                            && start - Files.getLastModifiedTime(path).toMillis() >= compactAfterMillis) {
+                        folders.add(path);
+                    }
+                }
+            }
+            Collections.sort(folders);
+            for (Path path : folders) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                try {
+                    compact(path, result);
+                } catch (IOException e) {
+                    failedCount.incrementAndGet();
+                    result.addFailed(path);
+                    logger.debug("Unable to archive folder [" + path + "] due to errors", e);
+                }
+            }
+            retain(start, result);
+            result.setMessage("Folder [" + folder + "] is compacted");
+        } catch (IOException e) {
+            logger.debug("Unable to compact folder [" + folder + "] due to errors", e);
+            result.setMessage("Unable to compact folder [" + folder + "] due to errors");
+        } finally {
+            current = null;
+        }
+        runCount.incrementAndGet();
+        lastRunTime = start;
+        lastElapsedTime = System.currentTimeMillis() - start;
+        result.setElapsedTime(lastElapsedTime);
+        logger.debug("Folder [" + folder + "] is compacted in [" + lastElapsedTime + "] ms; " + result.getTrackedCount()
+                + " archives created, " + result.getDeletedCount() + " deleted, " + result.getFailedCount() + " failed, ["
+                + result.getBytes() + "] bytes reclaimed");
+        return result;
+    }
+
+    /**
+     * Archives the folder and deletes it
+     */
+    private void compact(Path source, FileOperationResult result) throws IOException {
+        current = source;
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        Path zipPath = folder.resolve(source.getFileName() + "_" + DATE_FORMAT.print(modified) + ZIP_EXTENSION);
+        IOThrottle throttle = new IOThrottle(bytesPerSecond);
+        FileOperationResult zipped = archive(source, zipPath, workers, level, throttle, new ProgressCallback() {
+            private long processed;
+
+            @Override
+            public void onProgress(Path path, int files, long bytes) {
+                processedBytes.addAndGet(bytes - processed);
+                processed = bytes;
+            }
+        });
+        Files.setLastModifiedTime(zipPath, FileTime.fromMillis(modified));
+        result.addTracked(zipPath);
+        FileOperationResult deleted = FileUtils.delete(source, false);
+        if (deleted.getFailedCount() > 0 || Files.exists(source, LinkOption.NOFOLLOW_LINKS)) {
+            failedCount.incrementAndGet();
+            result.addFailed(source);
+            logger.debug("Folder [" + source + "] is archived to [" + zipPath + "] but cannot be deleted completely");
+            return;
+        }
+        long reclaimed = Math.max(0, zipped.getBytes() - Files.size(zipPath));
+        reclaimedBytes.addAndGet(reclaimed);
+        compactedCount.incrementAndGet();
+        result.addBytes(reclaimed);
+        logger.debug("Folder [" + source + "] is archived to [" + zipPath + "] with [" + reclaimed + "] bytes reclaimed");
+    }
+
+    /**
+     * Zips the folder under a temporary name, verifies the archive and renames it, leaving the folder as it is. An
+     * existing archive is never replaced, since its folder may be only partly left after an incomplete delete.
+     *
+     * @param throttle limit of reading the folder, writing the archive and verifying it
+     * @param progress called after every file; null for none
+     * @return zipped files and bytes
+     * @throws IOException thrown if the folder cannot be archived completely; no archive is left then
+     */
+    static FileOperationResult archive(Path source, Path zipPath, int workers, int level, IOThrottle throttle,
+                                       ProgressCallback progress) throws IOException {
+        if (Files.exists(zipPath, LinkOption.NOFOLLOW_LINKS)) {
+            throw new FileAlreadyExistsException(zipPath.toString(), source.toString(), "Archive of folder already exists");
+        }
+        Path temporary = zipPath.resolveSibling(zipPath.getFileName() + TEMPORARY_EXTENSION);
+        FileOperationResult zipped = FileUtils.zip(temporary, source, workers, level, throttle, new FileOperationResult(progress));
+        try {
+            if (zipped.getFailedCount() > 0 || !Files.exists(temporary) || !verify(temporary, zipped.getTrackedCount(), throttle)) {
+                throw new IOException("Archive [" + temporary + "] of folder [" + source + "] is not complete");
+            }
+            Files.move(temporary, zipPath);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return zipped;
+    }
+
+    /**
+     * Reads every entry back, which checks its size and CRC
+     */
+    private static boolean verify(Path zipPath, int files, IOThrottle throttle) throws IOException {
+        int count = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(zipPath); ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    count++;
+                }
+                int read;
+                while ((read = zip.read(buffer)) > 0) {
+                    throttle.acquire(read);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Verification of archive [" + zipPath + "] is interrupted", e);
+        }
+        return count == files;
+    }
+
+    /**
+     * Deletes archives exceeding the count, age or total size, starting from the oldest
+     */
+    private void retain(long now, FileOperationResult result) throws IOException {
+        final List<Path> archives = new ArrayList<Path>();
+        final List<BasicFileAttributes> attributes = new ArrayList<BasicFileAttributes>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + ZIP_EXTENSION)) {
+            for (Path path : stream) {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attrs.isRegularFile()) {
+                    archives.add(path);
+                    attributes.add(attrs);
+                }
+            }
+        }
+        List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < archives.size(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byTime = attributes.get(b).lastModifiedTime().compareTo(attributes.get(a).lastModifiedTime());
+                return byTime != 0 ? byTime : archives.get(b).compareTo(archives.get(a));
+            }
+        });
+        long total = 0;
+        for (int kept = 0; kept < order.size(); kept++) {
+            int i = order.get(kept);
+            Path archive = archives.get(i);
+            long size = attributes.get(i).size();
+            total += size;
+            if (kept < maxArchives && total <= maxBytes && now - attributes.get(i).lastModifiedTime().toMillis() <= maxAgeMillis) {
+                continue;
+            }
+            try {
+                Files.delete(archive);
+                deletedCount.incrementAndGet();
+                reclaimedBytes.addAndGet(size);
+                result.addBytes(size);
+                result.addDeleted(archive);
+                logger.debug("Archive [" + archive + "] is deleted by retention policy");
+            } catch (IOException e) {
+                result.addFailed(archive);
+                logger.debug("Unable to delete archive [" + archive + "] due to errors", e);
+            }
+        }
+    }
+
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * @return number of runs completed
+     */
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    /**
+     * @return number of folders archived and deleted
+     */
+    public long getCompactedCount() {
+        return compactedCount.get();
+    }
+
+    /**
+     * @return number of archives deleted by the retention policy
+     */
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
+    /**
+     * @return number of folders which cannot be archived or deleted completely
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return bytes freed by compressing folders and deleting archives
+     */
+    public long getReclaimedBytes() {
+        return reclaimedBytes.get();
+    }
+
+    /**
+     * @return bytes of files compressed so far
+     */
+    public long getProcessedBytes() {
+        return processedBytes.get();
+    }
+
+    /**
+     * @return folder being compressed, or null if no run is in progress
+     */
+    public Path getCurrentFolder() {
+        return current;
+    }
+
+    /**
+     * @return start time of the last run in milliseconds, or zero if it has not run yet
+     */
+    public long getLastRunTime() {
+        return lastRunTime;
+    }
+
+    /**
+     * @return duration of the last run in milliseconds
+     */
+    public long getLastElapsedTime() {
+        return lastElapsedTime;
+    }
+}
@@ -0,0 +1,199 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes files so readers never see them half-written. Content is streamed into a temporary file in the same folder,
+ * which is then renamed to the target path with {@link StandardCopyOption#ATOMIC_MOVE}. If it is durable, content is
+ * forced to the disk before the rename and the folder is forced after it, so the file survives a crash once written.
+ */
+class AtomicFileWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtomicFileWriter.class);
+
+    private AtomicFileWriter() throws InstantiationException {
+        throw new InstantiationException("Utility classes should not be instantiated");
+    }
+
+    /**
+     * @param path    file to write
+     * @param content written from its position to its limit; position of the buffer is not changed
+     * @param durable true to force content and folder to the disk
+     * @return number of bytes written
+     * @throws IOException thrown if the file cannot be written; the target is not changed then
+     */
+    static long write(Path path, ByteBuffer content, boolean durable) throws IOException {
+        return write(path, null, content, durable, durable, true);
+    }
+
+    /**
+     * Writes like {@link #write(Path, ByteBuffer, boolean)}, leaving the folder to the caller, so a folder is forced
+     * once after many files are written into it
+     *
+     * @param force         true to force content to the disk before the rename
+     * @param syncDirectory true to force the folder after the rename
+     */
+    static long write(Path path, ByteBuffer content, boolean force, boolean syncDirectory) throws IOException {
+        return write(path, null, content, force, syncDirectory, true);
+    }
+
+    /**
+     * Writes like {@link #write(Path, ByteBuffer, boolean, boolean)}, failing instead of replacing an existing file.
+     * The temporary file is published with a hard link, which fails atomically if the file exists, and then deleted.
+     *
+     * @throws FileAlreadyExistsException thrown if the file exists; it is not changed then
+     */
+    static long writeNew(Path path, ByteBuffer content, boolean force, boolean syncDirectory) throws IOException {
+        return write(path, null, content, force, syncDirectory, false);
+    }
+
+    /**
+     * @param path    file to write
+     * @param content read until its end; it is not closed
+     * @param durable true to force content and folder to the disk
+     * @return number of bytes written
+     * @throws IOException thrown if the file cannot be written; the target is not changed then
+     */
+    static long write(Path path, ReadableByteChannel content, boolean durable) throws IOException {
+        return write(path, content, null, durable, durable, true);
+    }
+
+    private static long write(Path path, ReadableByteChannel channel, ByteBuffer buffer, boolean force,
+                              boolean syncDirectory, boolean replace) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        Path temporary = temporaryPath(path.toAbsolutePath());
+        boolean moved = false;
+        try {
+            long size;
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                size = buffer != null ? writeFully(out, buffer.duplicate()) : transfer(channel, out);
+                if (force) {
+                    out.force(true);
+                }
+            }
+            if (replace) {
+                try {
+                    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    logger.debug("Atomic move is not supported for path [" + path + "]; replacing the file instead", e);
+                    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                publish(temporary, path);
+            }
+            moved = true;
+            if (syncDirectory) {
+                syncDirectory(dir);
+            }
+            return size;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Links the file to the temporary one, which fails if the file exists, and deletes the temporary one. Where hard
+     * links are not supported, it is moved without replacing, which checks the file before the rename.
+     */
+    private static void publish(Path temporary, Path path) throws IOException {
+        try {
+            Files.createLink(path, temporary);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            logger.debug("Unable to link path [" + path + "]; moving the file instead", e);
+            Files.move(temporary, path);
+            return;
+        }
+        Files.delete(temporary);
+    }
+
+    /**
+     * Temporary files are created with {@link StandardOpenOption#CREATE_NEW} on this path instead of
+     * {@link Files#createTempFile}, so they get the permissions of the umask like files written directly, not owner
+     * only ones.
+     *
+     * @param path file to write
+     * @return unique temporary path in the same folder, like ".file3f2a9c1e4b7d8a06.tmp"
+     */
+    static Path temporaryPath(Path path) {
+        return path.resolveSibling("." + path.getFileName() + Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + ".tmp");
+    }
+
+    /**
+     * @param path any file
+     * @return true if it looks like a temporary file of this writer, like ".file123.tmp"
+     */
+    static boolean isTemporary(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(".") && name.endsWith(".tmp");
+    }
+
+    /**
+     * Forces entries of a folder, like a renamed file, to the disk. Ignored where folders cannot be opened, like
+     * Windows.
+     *
+     * @param dir folder to force
+     */
+    static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Unable to sync directory [" + dir + "]", e);
+        }
+    }
+
+    private static long writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        long size = 0;
+        while (buffer.hasRemaining()) {
+            size += out.write(buffer);
+        }
+        return size;
+    }
+
+    /**
+     * @param in  read from its position until its end
+     * @param out written from its position
+     * @return number of bytes transferred
+     */
+    static long transfer(ReadableByteChannel in, FileChannel out) throws IOException {
+        if (in instanceof FileChannel) {
+            FileChannel file = (FileChannel) in;
+            long position = file.position();
+            long size = file.size() - position;
+            long transferred = 0;
+            while (transferred < size) {
+                long count = out.transferFrom(file, transferred, size - transferred);
+                if (count <= 0) {
+                    break;
+                }
+                transferred += count;
+            }
+            file.position(position + transferred);
+            return transferred;
+        }
+        ByteBuffer buffer = DirectBufferPool.SHARED.acquire();
+        try {
+            long size = 0;
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                size += writeFully(out, buffer);
+                buffer.clear();
+            }
+            return size;
+        } finally {
+            DirectBufferPool.SHARED.release(buffer);
+        }
+    }
+}
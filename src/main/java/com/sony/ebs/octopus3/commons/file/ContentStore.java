@@ -0,0 +1,255 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores every distinct content once and hard links files with the same content to it, like sheets which are the same
+ * for many locales. Contents are kept as blobs named by their SHA-256 hash, like "/blobs/3a/7bd3...", and every file
+ * written through the store is a hard link to its blob, so identical files share disk space and page cache.
+ * <p/>
+ * The file system counts the links of every blob, so there is no separate reference count to keep consistent: a blob
+ * whose only link is the store itself is not used by any file, and is deleted by {@link #gc()}.
+ * <p/>
+ * Linked files share their content, so they should be replaced, like by the store or by the writeFile methods of
+ * {@link FileUtils}, instead of being modified in place, which would change every file with the same content. Blob
+ * folder should be on the same file system as the files, and outside of the folders scanned for URNs. Where hard links
+ * are not supported, like across file systems, files are written as copies.
+ */
+public class ContentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentStore.class);
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final int ATTEMPTS = 3;
+
+    private final Path blobFolder;
+    private final AtomicLong storedCount = new AtomicLong();
+    private final AtomicLong linkedCount = new AtomicLong();
+    private final AtomicLong copiedCount = new AtomicLong();
+
+    /**
+     * @param blobFolder folder to keep blobs in; it is created if it is missing
+     */
+    public ContentStore(Path blobFolder) {
+        this.blobFolder = blobFolder.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Writes the content to the path as a link to its blob. Blob is written only if the content is new.
+     *
+     * @param path    file to write; an existing file is replaced atomically
+     * @param content written from its position to its limit; its position is not changed
+     * @return number of bytes of the content
+     * @throws IOException thrown if the content cannot be stored or linked
+     */
+    public long write(Path path, ByteBuffer content) throws IOException {
+        MessageDigest digest = FileDigest.newDigest(ALGORITHM);
+        digest.update(content.duplicate());
+        String hash = FileDigest.toHex(digest.digest());
+        for (int attempt = 1; ; attempt++) {
+            Path blob = getBlobPath(hash);
+            try {
+                if (!Files.exists(blob)) {
+                    storeBlob(blob, content, null);
+                } else {
+                    linkedCount.incrementAndGet();
+                }
+                link(blob, path);
+                return content.remaining();
+            } catch (NoSuchFileException e) {
+                // blob is collected after it is found; store it again
+                if (attempt == ATTEMPTS) {
+                    throw e;
+                }
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                logger.debug("Unable to link path [" + path + "] to blob [" + blob + "]; writing a copy instead", e);
+                copiedCount.incrementAndGet();
+                return AtomicFileWriter.write(path, content, false);
+            }
+        }
+    }
+
+    /**
+     * Copies a file by linking the target to the blob of the source content. If the content is new, it is copied to a
+     * new blob; the source itself is not changed, so writing it later does not change the target.
+     *
+     * @param source file to copy
+     * @param target file to create or replace atomically
+     * @throws IOException thrown if the source cannot be read or the target cannot be linked
+     */
+    public void copy(Path source, Path target) throws IOException {
+        String hash = FileDigest.toHex(FileDigest.hash(source, ALGORITHM));
+        for (int attempt = 1; ; attempt++) {
+            Path blob = getBlobPath(hash);
+            try {
+                if (!Files.exists(blob)) {
+                    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                        storeBlob(blob, null, in);
+                    }
+                } else {
+                    linkedCount.incrementAndGet();
+                }
+                link(blob, target);
+                return;
+            } catch (NoSuchFileException e) {
+                // blob is collected after it is found; store it again
+                if (attempt == ATTEMPTS || !Files.exists(source)) {
+                    throw e;
+                }
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                logger.debug("Unable to link path [" + target + "] to blob [" + blob + "]; writing a copy instead", e);
+                copiedCount.incrementAndGet();
+                try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                    AtomicFileWriter.write(target, in, false);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deletes blobs which are not linked to any file. Files written while collecting are not lost: if their blob is
+     * deleted, it is stored again.
+     *
+     * @return deleted blobs as tracked paths and reclaimed bytes
+     */
+    public FileOperationResult gc() {
+        final FileOperationResult result = new FileOperationResult();
+        if (!Files.isDirectory(blobFolder)) {
+            return result;
+        }
+        long start = System.nanoTime();
+        try {
+            Files.walkFileTree(blobFolder, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path blob, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile() || AtomicFileWriter.isTemporary(blob)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    try {
+                        if (((Number) Files.getAttribute(blob, "unix:nlink", LinkOption.NOFOLLOW_LINKS)).intValue() == 1) {
+                            Files.delete(blob);
+                            result.addBytes(attrs.size());
+                            result.addTracked(blob);
+                        } else {
+                            result.addSkipped();
+                        }
+                    } catch (IOException | UnsupportedOperationException e) {
+                        result.addFailed(blob);
+                        logger.debug("Unable to collect blob [" + blob + "] due to errors", e);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    result.addFailed(file);
+                    logger.debug("Unable to visit blob [" + file + "] due to errors", e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            result.setMessage("Blobs in folder [" + blobFolder + "] are collected");
+        } catch (IOException e) {
+            logger.debug("Unable to walk in directory [" + blobFolder + "] due to errors", e);
+            result.setMessage("Unable to walk in directory [" + blobFolder + "] due to errors");
+        }
+        result.setElapsedTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.debug("Blobs in folder [" + blobFolder + "] are collected; " + result.getTrackedCount() + " deleted with ["
+                + result.getBytes() + "] bytes, " + result.getSkippedCount() + " in use");
+        return result;
+    }
+
+    /**
+     * @param hash SHA-256 hash of a content as hex string
+     * @return path of its blob, which may not exist
+     */
+    public Path getBlobPath(String hash) {
+        return blobFolder.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+
+    public Path getBlobFolder() {
+        return blobFolder;
+    }
+
+    /**
+     * @return number of blobs stored since creation
+     */
+    public long getStoredCount() {
+        return storedCount.get();
+    }
+
+    /**
+     * @return number of files linked to a blob which is already stored
+     */
+    public long getLinkedCount() {
+        return linkedCount.get();
+    }
+
+    /**
+     * @return number of files written as copies since they cannot be linked
+     */
+    public long getCopiedCount() {
+        return copiedCount.get();
+    }
+
+    /**
+     * Writes the blob to a temporary file and publishes it with a link, which fails instead of replacing a blob
+     * written at the same time, so files already linked to the blob stay in the store. Temporary file is created like
+     * by {@link AtomicFileWriter}, so blobs get the permissions of the umask.
+     *
+     * @param content written from its position to its limit; null to read the source instead
+     * @param source  read from its position until its end
+     */
+    private void storeBlob(Path blob, ByteBuffer content, FileChannel source) throws IOException {
+        Files.createDirectories(blob.getParent());
+        Path temporary = AtomicFileWriter.temporaryPath(blob);
+        try {
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                if (content != null) {
+                    ByteBuffer buffer = content.duplicate();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                } else {
+                    AtomicFileWriter.transfer(source, out);
+                }
+            }
+            Files.createLink(blob, temporary);
+            storedCount.incrementAndGet();
+        } catch (FileAlreadyExistsException e) {
+            linkedCount.incrementAndGet();
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Replaces the path atomically with a link to the blob
+     */
+    private static void link(Path blob, Path path) throws IOException {
+        if (Files.exists(path, LinkOption.NOFOLLOW_LINKS) && Files.isSameFile(blob, path)) {
+            return;
+        }
+        Path temporary = AtomicFileWriter.temporaryPath(path.toAbsolutePath());
+        try {
+            Files.createLink(temporary, blob);
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
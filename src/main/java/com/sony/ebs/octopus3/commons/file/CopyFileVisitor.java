@@ -47,7 +47,7 @@ public class CopyFileVisitor extends SimpleFileVisitor<Path> {
                 Files.createDirectories(targetParent);
             }
             Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
-            logger.info("File [" + file + "] is copied to target [" + targetFile + "]");
+            logger.debug("File [" + file + "] is copied to target [" + targetFile + "]");
         } catch (IOException e) {
             logger.debug("Unable to copy file [" + file + "] due to errors", e);
         }
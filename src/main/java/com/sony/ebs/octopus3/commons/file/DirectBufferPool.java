@@ -0,0 +1,65 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct buffers of the same size. Direct buffers are expensive to allocate and are released only by the
+ * garbage collector, so buffers used for reading and writing files are reused instead. Buffers above the limit of the
+ * pool are left to the garbage collector.
+ */
+class DirectBufferPool {
+
+    static final DirectBufferPool SHARED = new DirectBufferPool(FileBuffer.MAP_THRESHOLD, 64);
+
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @param bufferSize capacity of every buffer
+     * @param maxBuffers number of idle buffers kept in the pool
+     */
+    DirectBufferPool(int bufferSize, int maxBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+    }
+
+    /**
+     * @return a cleared buffer of {@link #getBufferSize()} bytes
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @param buffer acquired from this pool; it should not be used afterwards
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || !buffer.isDirect()) {
+            throw new IllegalArgumentException("Buffer is not acquired from this pool");
+        }
+        if (pooled.incrementAndGet() <= maxBuffers) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    int getPooled() {
+        return pooled.get();
+    }
+}
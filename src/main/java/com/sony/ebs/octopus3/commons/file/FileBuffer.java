@@ -0,0 +1,83 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Content of a file read by {@link FileUtils#readFile(Path)} as a read-only buffer outside of the heap. Files larger
+ * than {@link #MAP_THRESHOLD} are memory-mapped; smaller files are read into a pooled direct buffer, which is returned
+ * to the pool when this is closed. The buffer should not be used after closing, like:
+ * <pre>
+ * try (FileBuffer content = FileUtils.readFile(path)) {
+ *     channel.write(content.getBuffer());
+ * }
+ * </pre>
+ */
+public class FileBuffer implements Closeable {
+
+    public static final int MAP_THRESHOLD = 256 * 1024;
+
+    private final ByteBuffer buffer;
+    private final boolean mapped;
+    private ByteBuffer pooled;
+
+    private FileBuffer(ByteBuffer buffer, ByteBuffer pooled) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.mapped = pooled == null;
+        this.pooled = pooled;
+    }
+
+    static FileBuffer read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAP_THRESHOLD) {
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("File [" + path + "] is too large to map with [" + size + "] bytes");
+                }
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return new FileBuffer(mapped, null);
+            }
+            ByteBuffer pooled = DirectBufferPool.SHARED.acquire();
+            try {
+                while (pooled.hasRemaining() && channel.read(pooled) >= 0) {
+                    // file may grow while reading; content up to the pooled capacity is kept
+                }
+                pooled.flip();
+                return new FileBuffer(pooled, pooled);
+            } catch (IOException e) {
+                DirectBufferPool.SHARED.release(pooled);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return read-only content from position 0 to the size of the file; every call returns the same buffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return true if the file is memory-mapped instead of read into a pooled buffer
+     */
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * Returns the pooled buffer to the pool; mapped buffers are released by the garbage collector
+     */
+    @Override
+    public synchronized void close() {
+        if (pooled != null) {
+            DirectBufferPool.SHARED.release(pooled);
+            pooled = null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.urn.URN;
+
+import java.nio.file.Path;
+
+/**
+ * Change of a file in a repository folder published by {@link FileChangeFeed}. Events of a feed have increasing
+ * sequence numbers without gaps, so a subscriber can tell whether it missed events.
+ */
+public class FileChangeEvent {
+
+    public enum Kind {
+        CREATED, MODIFIED, DELETED
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final URN urn;
+    private final Path path;
+    private final boolean directory;
+
+    FileChangeEvent(long sequence, Kind kind, URN urn, Path path, boolean directory) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.urn = urn;
+        this.path = path;
+        this.directory = directory;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return URN of the file, or of the folder if a folder is deleted
+     */
+    public URN getUrn() {
+        return urn;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return true if a whole folder is deleted; files created in new folders are published one by one
+     */
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + kind + " " + urn;
+    }
+}
@@ -0,0 +1,419 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.urn.URN;
+import com.sony.ebs.octopus3.commons.urn.URNCreationException;
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Publishes changes of the files under a repository folder as {@link FileChangeEvent}s, so changes are found without
+ * scanning the repository. Every folder is registered to a {@link WatchService}; folders created later are registered
+ * when they appear and their files are published as created.
+ * <p/>
+ * Events are coalesced until no change happens for the coalesce period, so a file written several times is published
+ * once: a created and then modified file is published as created, a created and then deleted file is not published at
+ * all. Hidden files and folders, like temporary files of {@link AtomicFileWriter} and snapshot stores of
+ * {@link SnapshotManager}, are ignored like by {@link URNRepositoryScanner}.
+ * <p/>
+ * If the watch service loses events, the folder they belong to is listed again: its files are published as modified,
+ * its missing subfolders as deleted and files of its new subfolders as created. Subfolders already watched are not
+ * walked, since they get their own lost events. Files deleted while events are lost are not published.
+ * <p/>
+ * Subscribers are called one by one from the thread of the feed, so they should not block, like:
+ * <pre>
+ * FileChangeFeed feed = new FileChangeFeed(repository).subscribe(listener).start();
+ * ...
+ * feed.close();
+ * </pre>
+ */
+public class FileChangeFeed implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileChangeFeed.class);
+
+    public static final long DEFAULT_COALESCE_MILLIS = 200;
+
+    /**
+     * Pending events are published at least this many coalesce periods after the first one, even if changes go on
+     */
+    private static final int MAX_COALESCE_PERIODS = 10;
+    private static final int MAX_PENDING = 10000;
+
+    private final Path base;
+    private final Path folder;
+    private long coalesceMillis = DEFAULT_COALESCE_MILLIS;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<WatchKey, Path>();
+    private final Map<Path, WatchKey> directories = new ConcurrentHashMap<Path, WatchKey>();
+    private final Map<Path, Set<Path>> subdirectories = new HashMap<Path, Set<Path>>();
+    private final Map<Path, FileChangeEvent.Kind> pending = new LinkedHashMap<Path, FileChangeEvent.Kind>();
+    private final Set<Path> deletedDirectories = new HashSet<Path>();
+    private long firstPendingTime;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Receives events of the feed in the order of their sequence numbers
+     */
+    public interface Listener {
+        void onChange(FileChangeEvent event);
+    }
+
+    /**
+     * @param base is the path of repository folder, like "/repo"; it is watched and URNs are created relative to it
+     */
+    public FileChangeFeed(Path base) {
+        this(base, base);
+    }
+
+    /**
+     * @param base   is the path of repository folder, like "/repo"; URNs are created relative to it
+     * @param folder is the folder to watch under the base, like "/repo/global_sku"
+     */
+    public FileChangeFeed(Path base, Path folder) {
+        this.base = base.toAbsolutePath().normalize();
+        this.folder = folder.toAbsolutePath().normalize();
+        if (!this.folder.startsWith(this.base)) {
+            throw new IllegalArgumentException("Folder [" + folder + "] is not under base [" + base + "]");
+        }
+    }
+
+    /**
+     * @param coalesceMillis quiet period after which pending events are published
+     */
+    public FileChangeFeed withCoalesceMillis(long coalesceMillis) {
+        this.coalesceMillis = coalesceMillis;
+        return this;
+    }
+
+    public FileChangeFeed subscribe(Listener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    public FileChangeFeed unsubscribe(Listener listener) {
+        listeners.remove(listener);
+        return this;
+    }
+
+    /**
+     * Registers the folders and starts publishing events. Changes made before this returns are not published.
+     *
+     * @throws IOException thrown if the folder is not found or cannot be watched
+     */
+    public synchronized FileChangeFeed start() throws IOException {
+        if (thread != null) {
+            throw new IllegalStateException("Feed of folder [" + folder + "] is already started");
+        }
+        if (!Files.isDirectory(folder)) {
+            throw new NoSuchFileException(folder.toString(), null, "Folder to watch is not found");
+        }
+        watchService = folder.getFileSystem().newWatchService();
+        registerAll(folder, false);
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "file-change-feed");
+        thread.setDaemon(true);
+        thread.start();
+        logger.debug("Watching folder [" + folder + "] with [" + directories.size() + "] directories");
+        return this;
+    }
+
+    /**
+     * Stops watching; pending events are not published
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Unable to close watch service of folder [" + folder + "]", e);
+            }
+        }
+    }
+
+    /**
+     * @return sequence number of the last published event
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * @return number of times the watch service lost events and a folder is scanned again
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * @return number of changes which cannot be converted to URNs and folders which cannot be registered
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * @return number of folders watched
+     */
+    public int getDirectoryCount() {
+        return directories.size();
+    }
+
+    private void watch() {
+        try {
+            while (!closed) {
+                WatchKey key = pending.isEmpty() ? watchService.take() : watchService.poll(coalesceMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    process(key);
+                }
+                if (!pending.isEmpty() && (key == null || pending.size() >= MAX_PENDING
+                        || System.currentTimeMillis() - firstPendingTime >= coalesceMillis * MAX_COALESCE_PERIODS)) {
+                    publish();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Watch service of folder [" + folder + "] is closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(WatchKey key) {
+        Path dir = keys.get(key);
+        if (dir == null) {
+            key.cancel();
+            return;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflowCount.incrementAndGet();
+                logger.debug("Events of directory [" + dir + "] are lost; scanning it again");
+                rescan(dir);
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (URNRepositoryScanner.isHidden(path)) {
+                continue;
+            }
+            if (event.kind() == ENTRY_CREATE) {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    registerAll(path, true);
+                } else {
+                    add(path, FileChangeEvent.Kind.CREATED);
+                }
+            } else if (event.kind() == ENTRY_MODIFY) {
+                if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    add(path, FileChangeEvent.Kind.MODIFIED);
+                }
+            } else if (event.kind() == ENTRY_DELETE) {
+                if (unregisterAll(path)) {
+                    deletedDirectories.add(path);
+                }
+                add(path, FileChangeEvent.Kind.DELETED);
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * Coalesces the change with the pending change of the same path
+     */
+    private void add(Path path, FileChangeEvent.Kind kind) {
+        if (URNRepositoryScanner.isHidden(path)) {
+            return;
+        }
+        if (pending.isEmpty()) {
+            firstPendingTime = System.currentTimeMillis();
+        }
+        FileChangeEvent.Kind previous = pending.get(path);
+        if (previous == FileChangeEvent.Kind.CREATED) {
+            if (kind == FileChangeEvent.Kind.DELETED) {
+                pending.remove(path);
+                deletedDirectories.remove(path);
+            }
+        } else if (previous == FileChangeEvent.Kind.DELETED && kind != FileChangeEvent.Kind.DELETED) {
+            pending.put(path, FileChangeEvent.Kind.MODIFIED);
+        } else {
+            pending.put(path, kind);
+        }
+    }
+
+    private void publish() {
+        for (Map.Entry<Path, FileChangeEvent.Kind> entry : pending.entrySet()) {
+            Path path = entry.getKey();
+            URN urn;
+            try {
+                urn = new URNImpl(base, path);
+            } catch (URNCreationException e) {
+                skippedCount.incrementAndGet();
+                logger.debug("Changed file [" + path + "] cannot be converted to URN", e);
+                continue;
+            }
+            FileChangeEvent event = new FileChangeEvent(sequence.incrementAndGet(), entry.getValue(), urn, path,
+                    deletedDirectories.contains(path) && entry.getValue() == FileChangeEvent.Kind.DELETED);
+            for (Listener listener : listeners) {
+                try {
+                    listener.onChange(event);
+                } catch (RuntimeException e) {
+                    logger.debug("Listener of folder [" + folder + "] failed for event [" + event + "]", e);
+                }
+            }
+        }
+        pending.clear();
+        deletedDirectories.clear();
+    }
+
+    /**
+     * Registers a folder and its subfolders which are not registered yet
+     *
+     * @param publish true to publish their files as created
+     */
+    private void registerAll(Path start, final boolean publish) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(folder) && URNRepositoryScanner.isHidden(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (!directories.containsKey(dir)) {
+                        register(dir);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (publish && attrs.isRegularFile()) {
+                        add(file, FileChangeEvent.Kind.CREATED);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    skippedCount.incrementAndGet();
+                    logger.debug("Unable to register path [" + file + "] due to errors", e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            skippedCount.incrementAndGet();
+            logger.debug("Unable to register directory [" + start + "] due to errors", e);
+        }
+    }
+
+    private void register(Path dir) throws IOException {
+        WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        keys.put(key, dir);
+        directories.put(dir, key);
+        Path parent = dir.getParent();
+        if (!dir.equals(folder) && parent != null) {
+            Set<Path> siblings = subdirectories.get(parent);
+            if (siblings == null) {
+                siblings = new HashSet<Path>();
+                subdirectories.put(parent, siblings);
+            }
+            siblings.add(dir);
+        }
+    }
+
+    /**
+     * Cancels the registration of a folder and its subfolders
+     *
+     * @return true if the path is a registered folder
+     */
+    private boolean unregisterAll(Path path) {
+        WatchKey key = directories.remove(path);
+        if (key == null) {
+            return false;
+        }
+        key.cancel();
+        keys.remove(key);
+        Set<Path> children = subdirectories.remove(path);
+        if (children != null) {
+            for (Path child : children) {
+                unregisterAll(child);
+            }
+        }
+        Set<Path> siblings = subdirectories.get(path.getParent());
+        if (siblings != null) {
+            siblings.remove(path);
+        }
+        return true;
+    }
+
+    /**
+     * Lists a folder again after its events are lost. Its files are published as modified and its missing subfolders
+     * as deleted; new subfolders are registered and their files are published as created.
+     */
+    private void rescan(Path dir) {
+        Set<Path> missing = new HashSet<Path>();
+        Set<Path> registered = subdirectories.get(dir);
+        if (registered != null) {
+            missing.addAll(registered);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                if (URNRepositoryScanner.isHidden(path)) {
+                    continue;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    skippedCount.incrementAndGet();
+                    logger.debug("Unable to scan path [" + path + "] due to errors", e);
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    if (!missing.remove(path)) {
+                        registerAll(path, true);
+                    }
+                } else if (attributes.isRegularFile()) {
+                    add(path, FileChangeEvent.Kind.MODIFIED);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            logger.debug("Directory [" + dir + "] is deleted; its parent publishes it");
+            return;
+        } catch (IOException | DirectoryIteratorException e) {
+            skippedCount.incrementAndGet();
+            logger.debug("Unable to scan directory [" + dir + "] due to errors", e);
+            return;
+        }
+        for (Path path : missing) {
+            if (unregisterAll(path)) {
+                deletedDirectories.add(path);
+                add(path, FileChangeEvent.Kind.DELETED);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes contents of files with {@link MessageDigest}, reading them through pooled direct buffers
+ */
+class FileDigest {
+
+    private FileDigest() throws InstantiationException {
+        throw new InstantiationException("Utility classes should not be instantiated");
+    }
+
+    /**
+     * @param algorithm like "SHA-1"; every Java platform supports "SHA-1" and "SHA-256"
+     */
+    static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Digest algorithm [" + algorithm + "] is not available", e);
+        }
+    }
+
+    static byte[] hash(Path path, String algorithm) throws IOException {
+        MessageDigest digest = newDigest(algorithm);
+        ByteBuffer buffer = DirectBufferPool.SHARED.acquire();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            DirectBufferPool.SHARED.release(buffer);
+        }
+        return digest.digest();
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking file operations, like the asynchronous operations of {@link FileUtils}, so callers do not wait for the
+ * disk. At most a bounded number of operations run at the same time; others wait in order.
+ * <p/>
+ * On runtimes with virtual threads, every operation runs on its own virtual thread and the bound is kept by a
+ * semaphore. Otherwise operations run on a fixed pool of daemon threads.
+ */
+public class FileIOExecutor implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileIOExecutor.class);
+
+    private static final FileIOExecutor DEFAULT = new FileIOExecutor(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    /**
+     * @param maxConcurrency number of operations running at the same time
+     */
+    public FileIOExecutor(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency [" + maxConcurrency + "] should be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            delegate = virtual;
+            permits = new Semaphore(maxConcurrency, true);
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
+            pool.allowCoreThreadTimeOut(true);
+            delegate = pool;
+            permits = null;
+        }
+    }
+
+    /**
+     * @return executor shared by the asynchronous operations of {@link FileUtils}
+     */
+    public static FileIOExecutor getDefault() {
+        return DEFAULT;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        if (permits == null) {
+            delegate.execute(command);
+            return;
+        }
+        delegate.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return true if operations run on virtual threads
+     */
+    public boolean isVirtual() {
+        return permits != null;
+    }
+
+    /**
+     * Stops accepting operations; running and waiting ones are completed
+     */
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    /**
+     * Virtual threads are available from Java 21, which this library does not require, so they are looked up by
+     * reflection
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            logger.debug("Unable to create virtual thread executor; using platform threads", e);
+            return null;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "file-io-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merkle tree of the files under a folder. Every file is kept with its size, last modified time and SHA-1 hash; every
+ * folder is kept with a hash of the names and hashes of its children, so two folders having the same hash have the
+ * same content. {@link ManifestDiff} uses this to skip identical subtrees without visiting them.
+ * <p/>
+ * A manifest is persisted next to its folder as a hidden file, like "/repo/global_sku/.latest.manifest" for
+ * "/repo/global_sku/latest", so {@link URNRepositoryScanner} and {@link FileChangeFeed} skip it. When it is built again with the previous manifest, only files whose size or last
+ * modified time changed are read and hashed, like:
+ * <pre>
+ * FileManifest manifest = FileManifest.update(folder);
+ * </pre>
+ * Folders which cannot be listed and files which cannot be read are counted as failed and keep their entries of the
+ * previous manifest, so a diff does not report them as removed. They are left out only if there is no previous entry.
+ */
+public class FileManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileManifest.class);
+
+    public static final String EXTENSION = ".manifest";
+
+    private static final int MAGIC = 0x4F334D46;
+    private static final int VERSION = 1;
+    private static final String ALGORITHM = "SHA-1";
+    private static final int HASH_LENGTH = 20;
+
+    private final Path root;
+    private final Node rootNode;
+    private int hashedCount;
+    private int reusedCount;
+    private int failedCount;
+
+    private FileManifest(Path root, Node rootNode) {
+        this.root = root;
+        this.rootNode = rootNode;
+    }
+
+    /**
+     * Builds the manifest of a folder, reusing the hashes of the previous manifest, and saves it next to the folder
+     *
+     * @param folder folder to build the manifest of
+     * @return manifest of the folder
+     * @throws IOException thrown if the folder is not found or the manifest cannot be saved
+     */
+    public static FileManifest update(Path folder) throws IOException {
+        FileManifest manifest = build(folder, load(folder));
+        manifest.save();
+        return manifest;
+    }
+
+    /**
+     * Builds the manifest of a folder with a worker per processor
+     *
+     * @see #build(Path, FileManifest, int)
+     */
+    public static FileManifest build(Path folder, FileManifest previous) throws IOException {
+        return build(folder, previous, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Builds the manifest of a folder. Files having the same size and last modified time as in the previous manifest
+     * are not read again.
+     *
+     * @param folder   folder to build the manifest of
+     * @param previous manifest built before, maybe of another folder; null to hash all files
+     * @param workers  number of threads walking subfolders and hashing files
+     * @return manifest of the folder; it is not saved
+     * @throws IOException thrown if the folder is not found
+     */
+    public static FileManifest build(Path folder, FileManifest previous, int workers) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers [" + workers + "] should be positive");
+        }
+        Path root = folder.toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            throw new NoSuchFileException(root.toString(), null, "Folder to build manifest is not found");
+        }
+        long start = System.currentTimeMillis();
+        Builder builder = new Builder();
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        Node rootNode;
+        try {
+            rootNode = pool.invoke(builder.new BuildTask(root, "", previous != null ? previous.rootNode : null));
+        } finally {
+            pool.shutdown();
+        }
+        FileManifest manifest = new FileManifest(root, rootNode);
+        manifest.hashedCount = builder.hashed.get();
+        manifest.reusedCount = builder.reused.get();
+        manifest.failedCount = builder.failed.get();
+        logger.debug("Manifest of folder [" + root + "] is built in [" + (System.currentTimeMillis() - start) + "] ms; "
+                + manifest.hashedCount + " files hashed, " + manifest.reusedCount + " reused, " + manifest.failedCount + " failed");
+        return manifest;
+    }
+
+    /**
+     * Loads the manifest saved next to a folder
+     *
+     * @param folder folder the manifest belongs to
+     * @return saved manifest, or null if there is no manifest or it cannot be read
+     */
+    public static FileManifest load(Path folder) {
+        Path root = folder.toAbsolutePath().normalize();
+        Path path = getManifestPath(root);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.debug("Manifest [" + path + "] has unknown format; it is ignored");
+                return null;
+            }
+            return new FileManifest(root, readNode(in, ""));
+        } catch (IOException e) {
+            logger.debug("Unable to read manifest [" + path + "]; it is ignored", e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the manifest next to its folder. The previous manifest is replaced atomically.
+     *
+     * @throws IOException thrown if the manifest cannot be written
+     */
+    public void save() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeNode(out, rootNode);
+        }
+        Path path = getManifestPath(root);
+        AtomicFileWriter.write(path, ByteBuffer.wrap(bytes.toByteArray()), false);
+        logger.debug("Manifest of folder [" + root + "] is saved to [" + path + "]");
+    }
+
+    /**
+     * @param folder folder a manifest belongs to, like "/repo/global_sku/latest"
+     * @return path of its manifest, like "/repo/global_sku/.latest.manifest"
+     */
+    public static Path getManifestPath(Path folder) {
+        Path name = folder.getFileName();
+        if (name == null) {
+            throw new IllegalArgumentException("Folder [" + folder + "] has no parent to keep its manifest");
+        }
+        return folder.resolveSibling("." + name + EXTENSION);
+    }
+
+    /**
+     * @return absolute path of the folder
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return hash of the whole folder as hex string
+     */
+    public String getHash() {
+        return FileDigest.toHex(rootNode.hash);
+    }
+
+    /**
+     * @param relative path relative to the folder, like "en_gb/x1.json"
+     * @return hash of the file or subfolder as hex string, or null if it is not in the manifest
+     */
+    public String getHash(String relative) {
+        Node node = rootNode;
+        for (String name : relative.split("[/\\\\]")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            node = node.children != null ? node.children.get(name) : null;
+            if (node == null) {
+                return null;
+            }
+        }
+        return FileDigest.toHex(node.hash);
+    }
+
+    /**
+     * @return number of files in the manifest
+     */
+    public int getFileCount() {
+        return rootNode.fileCount;
+    }
+
+    /**
+     * @return number of files read and hashed while building; zero for loaded manifests
+     */
+    public int getHashedCount() {
+        return hashedCount;
+    }
+
+    /**
+     * @return number of files whose hashes are taken from the previous manifest while building
+     */
+    public int getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * @return number of files and folders which cannot be read while building, kept from the previous manifest or
+     * left out
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    Node getRootNode() {
+        return rootNode;
+    }
+
+    /**
+     * File or folder of the tree. Children of folders are sorted by name, so folder hashes do not depend on the order
+     * of listing.
+     */
+    static class Node {
+        final String name;
+        final byte[] hash;
+        final long size;
+        final long lastModified;
+        final SortedMap<String, Node> children;
+        final int fileCount;
+
+        Node(String name, byte[] hash, long size, long lastModified) {
+            this.name = name;
+            this.hash = hash;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.children = null;
+            this.fileCount = 1;
+        }
+
+        Node(String name, SortedMap<String, Node> children) {
+            this.name = name;
+            this.children = children;
+            this.size = 0;
+            this.lastModified = 0;
+            MessageDigest digest = FileDigest.newDigest(ALGORITHM);
+            int count = 0;
+            for (Node child : children.values()) {
+                digest.update(child.isDirectory() ? (byte) 'd' : (byte) 'f');
+                digest.update(child.name.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(child.hash);
+                count += child.fileCount;
+            }
+            this.hash = digest.digest();
+            this.fileCount = count;
+        }
+
+        boolean isDirectory() {
+            return children != null;
+        }
+    }
+
+    private static class Builder {
+        private final AtomicInteger hashed = new AtomicInteger();
+        private final AtomicInteger reused = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        /**
+         * Lists a folder; hashes its changed files and forks a task for every subfolder
+         */
+        private class BuildTask extends RecursiveTask<Node> {
+
+            private static final long serialVersionUID = 1L;
+
+            private final Path dir;
+            private final String name;
+            private final Node previous;
+
+            BuildTask(Path dir, String name, Node previous) {
+                this.dir = dir;
+                this.name = name;
+                this.previous = previous != null && previous.isDirectory() ? previous : null;
+            }
+
+            @Override
+            protected Node compute() {
+                SortedMap<String, Node> children = new TreeMap<String, Node>();
+                List<BuildTask> subtasks = new ArrayList<BuildTask>();
+                boolean listed = false;
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    for (Path path : stream) {
+                        String childName = path.getFileName().toString();
+                        Node old = previous != null ? previous.children.get(childName) : null;
+                        BasicFileAttributes attributes;
+                        try {
+                            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        } catch (IOException | SecurityException e) {
+                            failed.incrementAndGet();
+                            logger.debug("Unable to read attributes of [" + path + "] due to errors", e);
+                            if (old != null) {
+                                children.put(childName, old);
+                            }
+                            continue;
+                        }
+                        if (attributes.isDirectory()) {
+                            BuildTask subtask = new BuildTask(path, childName, old);
+                            subtask.fork();
+                            subtasks.add(subtask);
+                        } else if (attributes.isRegularFile()) {
+                            Node file = file(path, childName, attributes, old);
+                            if (file != null) {
+                                children.put(childName, file);
+                            }
+                        }
+                    }
+                    listed = true;
+                } catch (IOException | DirectoryIteratorException | SecurityException e) {
+                    failed.incrementAndGet();
+                    logger.debug("Unable to list directory [" + dir + "] due to errors", e);
+                }
+                for (BuildTask subtask : subtasks) {
+                    Node child = subtask.join();
+                    children.put(child.name, child);
+                }
+                if (!listed && previous != null) {
+                    logger.debug("Entries of directory [" + dir + "] are kept from the previous manifest");
+                    return previous;
+                }
+                return new Node(name, children);
+            }
+
+            /**
+             * @return node of the file; the previous one if the file cannot be read, or null if there is none
+             */
+            private Node file(Path path, String fileName, BasicFileAttributes attributes, Node old) {
+                long size = attributes.size();
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                if (old != null && !old.isDirectory() && old.size == size && old.lastModified == lastModified) {
+                    reused.incrementAndGet();
+                    return old;
+                }
+                try {
+                    byte[] hash = FileDigest.hash(path, ALGORITHM);
+                    hashed.incrementAndGet();
+                    return new Node(fileName, hash, size, lastModified);
+                } catch (IOException | SecurityException e) {
+                    failed.incrementAndGet();
+                    logger.debug("Unable to hash file [" + path + "] due to errors", e);
+                    return old;
+                }
+            }
+        }
+    }
+
+    private static void writeNode(DataOutputStream out, Node node) throws IOException {
+        out.writeBoolean(node.isDirectory());
+        out.writeUTF(node.name);
+        if (node.isDirectory()) {
+            out.writeInt(node.children.size());
+            for (Node child : node.children.values()) {
+                writeNode(out, child);
+            }
+        } else {
+            out.write(node.hash);
+            out.writeLong(node.size);
+            out.writeLong(node.lastModified);
+        }
+    }
+
+    /**
+     * Folder hashes are not saved but computed again from their children, so a manifest is consistent even if it is
+     * edited by hand
+     */
+    private static Node readNode(DataInputStream in, String expectedName) throws IOException {
+        boolean directory = in.readBoolean();
+        String name = in.readUTF();
+        if (expectedName != null && !expectedName.equals(name)) {
+            throw new IOException("Root of manifest is [" + name + "] instead of [" + expectedName + "]");
+        }
+        if (directory) {
+            int count = in.readInt();
+            SortedMap<String, Node> children = new TreeMap<String, Node>();
+            for (int i = 0; i < count; i++) {
+                Node child = readNode(in, null);
+                children.put(child.name, child);
+            }
+            return new Node(name, children);
+        }
+        byte[] hash = new byte[HASH_LENGTH];
+        in.readFully(hash);
+        return new Node(name, hash, in.readLong(), in.readLong());
+    }
+}
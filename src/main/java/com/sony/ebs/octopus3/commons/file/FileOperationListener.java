@@ -0,0 +1,27 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import java.nio.file.Path;
+
+/**
+ * Receives every path of a file operation as soon as it is processed, so results of bulk operations can be streamed
+ * instead of collected, like with {@link FileOperationResult#counting(FileOperationListener)}. Parallel operations
+ * call it from several threads at the same time, so it should be thread-safe.
+ */
+public interface FileOperationListener {
+
+    /**
+     * @param path processed successfully, like a deleted or copied file
+     */
+    void onTracked(Path path);
+
+    /**
+     * @param path which cannot be processed
+     */
+    void onFailed(Path path);
+
+    /**
+     * @param path deleted as a side effect, like a target file missing in the source of a sync
+     */
+    default void onDeleted(Path path) {
+    }
+}
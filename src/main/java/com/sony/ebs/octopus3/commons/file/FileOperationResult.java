@@ -3,9 +3,18 @@ package com.sony.ebs.octopus3.commons.file;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Result of a file operation. Paths can be added concurrently by parallel operations.
+ * <p/>
+ * By default every tracked, failed and deleted path is kept in a list. Bulk operations over millions of files can use
+ * a {@link #counting() counting} result instead, which keeps only the numbers and passes paths to an optional
+ * {@link FileOperationListener} as they are processed.
+ *
  * author: TRYavasU
  * date: 07/07/2014
  */
@@ -13,25 +22,164 @@ public class FileOperationResult {
 
     private String message;
 
-    private List<Path> filesTracked = new ArrayList<Path>();
-    private List<Path> filesFailed = new ArrayList<Path>();
+    private final boolean keepPaths;
+    private final List<Path> filesTracked;
+    private final List<Path> filesFailed;
+    private final List<Path> filesDeleted;
+    private final AtomicInteger tracked = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger deleted = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile long elapsedTime;
+
+    private final FileOperationListener listener;
+    private final ProgressCallback progress;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a result keeping all paths
+     */
+    public FileOperationResult() {
+        this(true, null, null);
+    }
+
+    /**
+     * @param keepPaths true to keep all paths in lists, false to keep only counts
+     * @param listener  called for every path as it is added; null for none
+     */
+    public FileOperationResult(boolean keepPaths, FileOperationListener listener) {
+        this(keepPaths, listener, null);
+    }
+
+    /**
+     * @param progress called after every tracked or failed path; null for none
+     */
+    FileOperationResult(ProgressCallback progress) {
+        this(true, null, progress);
+    }
+
+    private FileOperationResult(boolean keepPaths, FileOperationListener listener, ProgressCallback progress) {
+        this.keepPaths = keepPaths;
+        this.filesTracked = keepPaths ? Collections.synchronizedList(new ArrayList<Path>()) : Collections.<Path>emptyList();
+        this.filesFailed = keepPaths ? Collections.synchronizedList(new ArrayList<Path>()) : Collections.<Path>emptyList();
+        this.filesDeleted = keepPaths ? Collections.synchronizedList(new ArrayList<Path>()) : Collections.<Path>emptyList();
+        this.listener = listener;
+        this.progress = progress;
+    }
+
+    /**
+     * @return a result keeping only counts, bytes and duration
+     */
+    public static FileOperationResult counting() {
+        return new FileOperationResult(false, null);
+    }
+
+    /**
+     * @param listener called for every path as it is added
+     * @return a result keeping only counts, bytes and duration
+     */
+    public static FileOperationResult counting(FileOperationListener listener) {
+        return new FileOperationResult(false, listener);
+    }
+
+    /**
+     * @return true if paths are kept in lists, false if only counts are kept
+     */
+    public boolean isKeepingPaths() {
+        return keepPaths;
+    }
 
     public void addTracked(Path path) {
-        filesTracked.add(path);
+        tracked.incrementAndGet();
+        if (keepPaths) filesTracked.add(path);
+        if (listener != null) listener.onTracked(path);
+        progress(path);
     }
 
     public void addFailed(Path path) {
-        filesFailed.add(path);
+        failed.incrementAndGet();
+        if (keepPaths) filesFailed.add(path);
+        if (listener != null) listener.onFailed(path);
+        progress(path);
+    }
+
+    private void progress(Path path) {
+        if (progress != null) {
+            progress.onProgress(path, tracked.get() + failed.get(), bytes.get());
+        }
+    }
+
+    /**
+     * Asks the operation to stop; running operations check it between files
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if the operation is asked to stop
+     */
+    public boolean isCancelled() {
+        return cancelled;
     }
 
+    public void addDeleted(Path path) {
+        deleted.incrementAndGet();
+        if (keepPaths) filesDeleted.add(path);
+        if (listener != null) listener.onDeleted(path);
+    }
+
+    public void addSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    public void addBytes(long count) {
+        bytes.addAndGet(count);
+    }
+
+    /**
+     * @return tracked paths; empty if only counts are kept
+     */
     public List<Path> getTracked() {
         return filesTracked;
     }
 
+    /**
+     * @return failed paths; empty if only counts are kept
+     */
     public List<Path> getFailed() {
         return filesFailed;
     }
 
+    /**
+     * @return paths deleted as a side effect, like target files missing in the source of a sync; empty if only counts
+     * are kept
+     */
+    public List<Path> getDeleted() {
+        return filesDeleted;
+    }
+
+    public int getTrackedCount() {
+        return tracked.get();
+    }
+
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    public int getDeletedCount() {
+        return deleted.get();
+    }
+
+    /**
+     * @return number of files left untouched, like unchanged files of a sync
+     */
+    public int getSkippedCount() {
+        return skipped.get();
+    }
+
     public String getMessage() {
         return message;
     }
@@ -39,4 +187,22 @@ public class FileOperationResult {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    /**
+     * @return number of bytes processed, like the bytes copied
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return duration of the operation in milliseconds
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public void setElapsedTime(long elapsedTime) {
+        this.elapsedTime = elapsedTime;
+    }
 }
@@ -4,8 +4,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author trerginl
@@ -27,12 +39,29 @@ public class FileUtils {
      * @return List of deleted paths
      */
     public static FileOperationResult delete(Path dir, boolean failIfNoFile) {
-        final FileOperationResult result = new FileOperationResult();
+        return delete(dir, failIfNoFile, new FileOperationResult());
+    }
 
+    /**
+     * Deletes the given file or folder like {@link #delete(Path, boolean)}, adding paths to the given result, like a
+     * {@link FileOperationResult#counting() counting} one for large folders
+     *
+     * @param result to add deleted and failed paths to
+     * @return the given result
+     */
+    public static FileOperationResult delete(Path dir, boolean failIfNoFile, final FileOperationResult result) {
         SimpleFileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
 
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                return result.isCancelled() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (result.isCancelled()) {
+                    return FileVisitResult.TERMINATE;
+                }
                 try {
                     Files.deleteIfExists(file);
                     result.addTracked(file);
@@ -63,6 +92,7 @@ public class FileUtils {
             result.setMessage("File/folder in path [" + dir + "] is not found");
             return result;
         } else {
+            long start = System.nanoTime();
             try {
                 Files.walkFileTree(dir, visitor);
                 logger.debug("File/folder in path [" + dir + "] is deleted");
@@ -71,10 +101,62 @@ public class FileUtils {
                 logger.debug("Unable to walk in directory [" + dir + "] due to errors", e);
                 result.setMessage("Unable to walk in directory [" + dir + "] due to errors");
             }
+            result.setElapsedTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
             return result;
         }
     }
 
+    /**
+     * Deletes the given file or folder in parallel. Subfolders are deleted concurrently in the given pool and every
+     * folder is deleted after its children. If any file or folder cannot be deleted due to any issues, deletion
+     * process continues with the other ones.
+     *
+     * @param dir          as the path of file or folder to delete
+     * @param failIfNoFile same as {@link #delete(Path, boolean)}
+     * @param pool         fork/join pool to run deletion in, like new ForkJoinPool(8)
+     * @return List of deleted paths
+     */
+    public static FileOperationResult delete(Path dir, boolean failIfNoFile, ForkJoinPool pool) {
+        return delete(dir, failIfNoFile, pool, new FileOperationResult());
+    }
+
+    /**
+     * Deletes the given file or folder in parallel like {@link #delete(Path, boolean, ForkJoinPool)}, adding paths to
+     * the given result
+     *
+     * @param result to add deleted and failed paths to
+     * @return the given result
+     */
+    public static FileOperationResult delete(Path dir, boolean failIfNoFile, ForkJoinPool pool,
+                                             FileOperationResult result) {
+        if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS) && !failIfNoFile) {
+            logger.debug("File/folder in path [" + dir + "] is not found; avoiding exception since failIFNoFile is false");
+            result.setMessage("File/folder in path [" + dir + "] is not found");
+            return result;
+        }
+        long start = System.nanoTime();
+        try {
+            if (ParallelDeleteTask.isDirectory(dir)) {
+                pool.invoke(new ParallelDeleteTask(dir, result));
+            } else {
+                Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                ParallelDeleteTask.deleteFiles(Collections.singletonList(dir), result);
+            }
+            logger.debug("File/folder in path [" + dir + "] is deleted");
+            result.setMessage("File/folder in path [" + dir + "] is deleted");
+        } catch (Exception e) {
+            logger.debug("Unable to walk in directory [" + dir + "] due to errors", e);
+            result.setMessage("Unable to walk in directory [" + dir + "] due to errors");
+        }
+        result.setElapsedTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * Writes the content into the file in place, through symbolic links and keeping its owner, permissions and inode.
+     * A file hard linked to other files, like by {@link ContentStore}, is replaced by a new one instead, so the other
+     * files are not changed; the new file gets the permissions of the umask then.
+     */
     public static boolean writeFile(Path path, byte[] content, boolean override, boolean createMissingFolders) {
         try {
             if (!override && Files.exists(path)) {
@@ -82,7 +164,11 @@ public class FileUtils {
                 return false;
             }
             if (createMissingFolders) Files.createDirectories(path.getParent());
-            Files.write(path, content);
+            if (isHardLinked(path)) {
+                AtomicFileWriter.write(path, ByteBuffer.wrap(content), false);
+            } else {
+                Files.write(path, content);
+            }
             logger.debug("File is written in path [" + path + "]");
         } catch (IOException e) {
             logger.debug("Content cannot be written to path [" + path + "]", e);
@@ -91,6 +177,173 @@ public class FileUtils {
         return true;
     }
 
+    /**
+     * @return true if the file has other hard links; false if it is missing or links are not counted
+     */
+    private static boolean isHardLinked(Path path) {
+        try {
+            return ((Number) Files.getAttribute(path, "unix:nlink", LinkOption.NOFOLLOW_LINKS)).intValue() > 1;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the content atomically: readers see either the previous file or the complete new one. Content is written
+     * to a temporary file in the same folder which replaces the file at the end.
+     *
+     * @param content              written from its position to its limit; its position is not changed
+     * @param override             false to keep an existing file
+     * @param createMissingFolders true to create parent folders
+     * @param durable              true to force the file and its folder to the disk before returning
+     * @return true if the file is written
+     */
+    public static boolean writeFile(Path path, ByteBuffer content, boolean override, boolean createMissingFolders,
+                                    boolean durable) {
+        return writeFile(path, null, content, override, createMissingFolders, durable);
+    }
+
+    /**
+     * Streams the content into the file atomically, like {@link #writeFile(Path, ByteBuffer, boolean, boolean, boolean)}
+     *
+     * @param content read until its end; it is not closed
+     */
+    public static boolean writeFile(Path path, InputStream content, boolean override, boolean createMissingFolders,
+                                    boolean durable) {
+        return writeFile(path, Channels.newChannel(content), null, override, createMissingFolders, durable);
+    }
+
+    /**
+     * Streams the content into the file atomically, like {@link #writeFile(Path, ByteBuffer, boolean, boolean, boolean)}.
+     * Content of a {@link java.nio.channels.FileChannel} is transferred without copying into the JVM.
+     *
+     * @param content read until its end; it is not closed
+     */
+    public static boolean writeFile(Path path, ReadableByteChannel content, boolean override,
+                                    boolean createMissingFolders, boolean durable) {
+        return writeFile(path, content, null, override, createMissingFolders, durable);
+    }
+
+    /**
+     * Writes the content through the content store: identical contents are stored once and files are hard links to
+     * them. The file is replaced atomically, like {@link #writeFile(Path, ByteBuffer, boolean, boolean, boolean)}.
+     *
+     * @param content written from its position to its limit; its position is not changed
+     * @param store   store keeping the content
+     * @return true if the file is written
+     */
+    public static boolean writeFile(Path path, ByteBuffer content, boolean override, boolean createMissingFolders,
+                                    ContentStore store) {
+        try {
+            if (!override && Files.exists(path)) {
+                logger.debug("File already exists in path [" + path + "] and override is not allowed");
+                return false;
+            }
+            if (createMissingFolders) Files.createDirectories(path.toAbsolutePath().getParent());
+            long size = store.write(path, content);
+            logger.debug("File is linked in path [" + path + "] with [" + size + "] bytes");
+        } catch (IOException e) {
+            logger.debug("Content cannot be written to path [" + path + "]", e);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean writeFile(Path path, ReadableByteChannel channel, ByteBuffer buffer, boolean override,
+                                     boolean createMissingFolders, boolean durable) {
+        try {
+            if (!override && Files.exists(path)) {
+                logger.debug("File already exists in path [" + path + "] and override is not allowed");
+                return false;
+            }
+            if (createMissingFolders) Files.createDirectories(path.toAbsolutePath().getParent());
+            long size = buffer != null ? AtomicFileWriter.write(path, buffer, durable) : AtomicFileWriter.write(path, channel, durable);
+            logger.debug("File is written in path [" + path + "] with [" + size + "] bytes");
+        } catch (IOException e) {
+            logger.debug("Content cannot be written to path [" + path + "]", e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes many files atomically with a pool of workers, like {@link #writeFile(Path, ByteBuffer, boolean, boolean,
+     * boolean)} for each of them. Files are grouped by their folders, so every folder is created only once.
+     * If any file cannot be written due to any issues, writing continues with the other ones.
+     *
+     * @param files                contents by paths; contents are written from their positions to their limits
+     * @param override             true to replace existing files, false to skip them
+     * @param createMissingFolders true to create parent folders
+     * @param durable              true to force every file, and every folder once, to the disk before returning
+     * @param workers              number of threads writing files
+     * @return written, skipped and failed files, written bytes and elapsed time
+     */
+    public static FileOperationResult writeFiles(Map<Path, ByteBuffer> files, boolean override,
+                                                 boolean createMissingFolders, boolean durable, int workers) {
+        return writeFiles(files, override, createMissingFolders, durable, workers, new FileOperationResult());
+    }
+
+    /**
+     * Writes many files like {@link #writeFiles(Map, boolean, boolean, boolean, int)}, adding paths to the given result
+     *
+     * @param result to add written, skipped and failed files to
+     * @return the given result
+     */
+    public static FileOperationResult writeFiles(Map<Path, ByteBuffer> files, boolean override,
+                                                 boolean createMissingFolders, boolean durable, int workers,
+                                                 FileOperationResult result) {
+        ParallelFileWriter writer = new ParallelFileWriter(result, workers, override, createMissingFolders, durable);
+        long start = System.nanoTime();
+        try {
+            writer.write(files);
+            logger.debug("[" + result.getTrackedCount() + "] files are written");
+            result.setMessage("[" + result.getTrackedCount() + "] files are written");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.debug("Writing files is interrupted", e);
+            result.setMessage("Writing files is interrupted");
+        }
+        result.setElapsedTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * Reads the file into a read-only buffer outside of the heap: large files are memory-mapped, small files are read
+     * into a pooled direct buffer. The returned content should be closed to return its buffer to the pool.
+     *
+     * @param path file to read
+     * @return content of the file
+     * @throws IOException thrown if the file cannot be read
+     */
+    public static FileBuffer readFile(Path path) throws IOException {
+        return FileBuffer.read(path);
+    }
+
+    /**
+     * Transfers content of the file to the channel, like a socket, without copying it into the JVM where the operating
+     * system supports it
+     *
+     * @param path   file to read
+     * @param target channel to write to; it is not closed
+     * @return number of bytes transferred
+     * @throws IOException thrown if the file cannot be read or the channel cannot be written
+     */
+    public static long transferFile(Path path, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long count = channel.transferTo(position, size - position, target);
+                if (count <= 0) {
+                    break;
+                }
+                position += count;
+            }
+            logger.debug("File in path [" + path + "] is transferred with [" + position + "] bytes");
+            return position;
+        }
+    }
+
     public static FileOperationResult zip(Path zipFilePath, Path fileOrFolderToZip) {
         FileOperationResult result = new FileOperationResult();
         try {
@@ -104,8 +357,256 @@ public class FileUtils {
         return result;
     }
 
+    /**
+     * Zips the given file or folder into a new archive, replacing an existing one. Files are deflated in parallel and
+     * the archive is written sequentially. Images and archives are stored without compression. If any file cannot be
+     * read due to any issues, zip process continues with the other ones.
+     *
+     * @param zipFilePath       archive to create
+     * @param fileOrFolderToZip file or folder to zip
+     * @param workers           number of threads deflating files
+     * @param level             compression level from 0 (no compression) to 9 (best compression), or -1 for default
+     * @return zipped and failed files, uncompressed bytes and elapsed time
+     */
+    public static FileOperationResult zip(Path zipFilePath, Path fileOrFolderToZip, int workers, int level) {
+        return zip(zipFilePath, fileOrFolderToZip, workers, level, new FileOperationResult());
+    }
+
+    /**
+     * Zips the given file or folder like {@link #zip(Path, Path, int, int)}, adding paths to the given result
+     *
+     * @param result to add zipped and failed files to
+     * @return the given result
+     */
+    public static FileOperationResult zip(Path zipFilePath, Path fileOrFolderToZip, int workers, int level,
+                                          FileOperationResult result) {
+        return zip(zipFilePath, fileOrFolderToZip, workers, level, new IOThrottle(0), result);
+    }
+
+    /**
+     * Zips the given file or folder like {@link #zip(Path, Path, int, int, FileOperationResult)}, reading files and
+     * writing the archive at most at the rate of the throttle
+     */
+    static FileOperationResult zip(Path zipFilePath, Path fileOrFolderToZip, int workers, int level, IOThrottle throttle,
+                                   FileOperationResult result) {
+        long start = System.nanoTime();
+        try {
+            new ParallelZipFileVisitor(zipFilePath, fileOrFolderToZip, result, workers, level, throttle).zip();
+            logger.debug("File/folder in path [" + fileOrFolderToZip + "] is zipped into [" + zipFilePath + "]");
+            result.setMessage("File/folder in path [" + fileOrFolderToZip + "] is zipped into [" + zipFilePath + "]");
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.debug("Unable to zip directory [" + fileOrFolderToZip + "] to path [" + zipFilePath + "] due to errors", e);
+            result.setMessage("Unable to zip directory [" + fileOrFolderToZip + "] to path [" + zipFilePath + "] due to errors");
+            try {
+                if (zipFilePath != null) Files.deleteIfExists(zipFilePath);
+            } catch (IOException deleteException) {
+                logger.debug("Unable to delete incomplete zip file [" + zipFilePath + "]", deleteException);
+            }
+        }
+        result.setElapsedTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * Extracts the given zip file into the target folder with a pool of workers. Entries pointing outside of the
+     * target folder are not extracted. If any entry cannot be extracted due to any issues, extraction continues with
+     * the other ones.
+     *
+     * @param zipFilePath zip file to extract
+     * @param targetPath  folder to extract into
+     * @param workers     number of threads extracting files
+     * @param override    true to replace existing files, false to skip them
+     * @return extracted, skipped and failed target files, extracted bytes and elapsed time
+     */
+    public static FileOperationResult unzip(Path zipFilePath, Path targetPath, int workers, boolean override) {
+        return unzip(zipFilePath, targetPath, workers, override, new FileOperationResult());
+    }
+
+    /**
+     * Extracts the given zip file like {@link #unzip(Path, Path, int, boolean)}, adding paths to the given result
+     *
+     * @param result to add extracted, skipped and failed files to
+     * @return the given result
+     */
+    public static FileOperationResult unzip(Path zipFilePath, Path targetPath, int workers, boolean override,
+                                            FileOperationResult result) {
+        ParallelZipExtractor extractor = new ParallelZipExtractor(zipFilePath, targetPath, result, workers, override);
+        long start = System.nanoTime();
+        try {
+            extractor.extract();
+            logger.debug("Zip file [" + zipFilePath + "] is extracted into [" + targetPath + "]");
+            result.setMessage("Zip file [" + zipFilePath + "] is extracted into [" + targetPath + "]");
+        } catch (Exception e) {
+            logger.debug("Unable to extract zip file [" + zipFilePath + "] to path [" + targetPath + "] due to errors", e);
+            result.setMessage("Unable to extract zip file [" + zipFilePath + "] to path [" + targetPath + "] due to errors");
+        }
+        result.setElapsedTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
     public static void copy(Path sourcePath, Path targetPath) throws IOException {
         Files.walkFileTree(sourcePath, new CopyFileVisitor(targetPath));
     }
 
+    /**
+     * Copies the given file or folder into the target folder with a pool of workers. Existing files are replaced. If
+     * any file cannot be copied due to any issues, copy process continues with the other ones.
+     *
+     * @param sourcePath file or folder to copy
+     * @param targetPath folder to copy into
+     * @param workers    number of threads copying files
+     * @return copied and failed source files, copied bytes and elapsed time
+     */
+    public static FileOperationResult copy(Path sourcePath, Path targetPath, int workers) {
+        return copy(sourcePath, targetPath, workers, new FileOperationResult());
+    }
+
+    /**
+     * Copies the given file or folder like {@link #copy(Path, Path, int)}, adding paths to the given result
+     *
+     * @param result to add copied and failed files to
+     * @return the given result
+     */
+    public static FileOperationResult copy(Path sourcePath, Path targetPath, int workers, FileOperationResult result) {
+        return copy(new ParallelCopyFileVisitor(sourcePath, targetPath, result, workers), sourcePath, targetPath);
+    }
+
+    /**
+     * Synchronizes the target folder with the given file or folder. Files with the same size and modification time
+     * in the target are skipped, others are copied with a pool of workers. If any file cannot be copied due to any
+     * issues, sync process continues with the other ones.
+     *
+     * @param sourcePath       file or folder to copy
+     * @param targetPath       folder to copy into
+     * @param workers          number of threads copying files
+     * @param compareContent   true to compare content of files with the same size instead of modification times
+     * @param deleteExtraneous true to delete target files and folders which do not exist in the source folder
+     * @return copied, skipped, deleted and failed files, copied bytes and elapsed time
+     */
+    public static FileOperationResult sync(Path sourcePath, Path targetPath, int workers,
+                                           boolean compareContent, boolean deleteExtraneous) {
+        return sync(sourcePath, targetPath, workers, compareContent, deleteExtraneous, new FileOperationResult());
+    }
+
+    /**
+     * Synchronizes the target folder like {@link #sync(Path, Path, int, boolean, boolean)}, adding paths to the given
+     * result
+     *
+     * @param result to add copied, deleted and failed files to
+     * @return the given result
+     */
+    public static FileOperationResult sync(Path sourcePath, Path targetPath, int workers, boolean compareContent,
+                                           boolean deleteExtraneous, FileOperationResult result) {
+        return copy(new ParallelCopyFileVisitor(sourcePath, targetPath, result, workers,
+                true, compareContent, deleteExtraneous), sourcePath, targetPath);
+    }
+
+    private static FileOperationResult copy(ParallelCopyFileVisitor visitor, Path sourcePath, Path targetPath) {
+        FileOperationResult result = visitor.getResult();
+        long start = System.nanoTime();
+        try {
+            visitor.copy();
+            logger.debug("File/folder in path [" + sourcePath + "] is copied to [" + targetPath + "]");
+            result.setMessage("File/folder in path [" + sourcePath + "] is copied to [" + targetPath + "]");
+        } catch (Exception e) {
+            logger.debug("Unable to copy [" + sourcePath + "] to path [" + targetPath + "] due to errors", e);
+            result.setMessage("Unable to copy [" + sourcePath + "] to path [" + targetPath + "] due to errors");
+        }
+        result.setElapsedTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * Deletes the given file or folder like {@link #delete(Path, boolean)} on the {@link FileIOExecutor#getDefault()
+     * file I/O executor}. Cancelling the future stops deletion after the current file.
+     *
+     * @param progress called after every file; null for none
+     * @return future of the deleted and failed paths
+     */
+    public static CompletableFuture<FileOperationResult> deleteAsync(Path dir, boolean failIfNoFile,
+                                                                     ProgressCallback progress) {
+        FileOperationResult result = new FileOperationResult(progress);
+        return async(result, () -> delete(dir, failIfNoFile, result));
+    }
+
+    /**
+     * Copies the given file or folder like {@link #copy(Path, Path, int)} on the {@link FileIOExecutor#getDefault()
+     * file I/O executor}. Cancelling the future stops copying after the files in progress.
+     *
+     * @param progress called after every file; null for none
+     * @return future of the copied and failed files
+     */
+    public static CompletableFuture<FileOperationResult> copyAsync(Path sourcePath, Path targetPath, int workers,
+                                                                   ProgressCallback progress) {
+        FileOperationResult result = new FileOperationResult(progress);
+        return async(result, () -> copy(sourcePath, targetPath, workers, result));
+    }
+
+    /**
+     * Zips the given file or folder like {@link #zip(Path, Path, int, int)} on the {@link FileIOExecutor#getDefault()
+     * file I/O executor}. Cancelling the future stops zipping and deletes the incomplete archive.
+     *
+     * @param progress called after every file; null for none
+     * @return future of the zipped and failed files
+     */
+    public static CompletableFuture<FileOperationResult> zipAsync(Path zipFilePath, Path fileOrFolderToZip,
+                                                                  int workers, int level, ProgressCallback progress) {
+        FileOperationResult result = new FileOperationResult(progress);
+        return async(result, () -> zip(zipFilePath, fileOrFolderToZip, workers, level, result));
+    }
+
+    /**
+     * Writes the content atomically like {@link #writeFile(Path, ByteBuffer, boolean, boolean, boolean)} on the
+     * {@link FileIOExecutor#getDefault() file I/O executor}. Cancelling the future before the write starts skips it.
+     *
+     * @param progress called after the file is written or failed; null for none
+     * @return future of the path as either tracked or failed, or skipped if it exists and override is false
+     */
+    public static CompletableFuture<FileOperationResult> writeFileAsync(Path path, ByteBuffer content, boolean override,
+                                                                        boolean createMissingFolders, boolean durable,
+                                                                        ProgressCallback progress) {
+        FileOperationResult result = new FileOperationResult(progress);
+        return async(result, () -> {
+            if (!override && Files.exists(path)) {
+                result.addSkipped();
+                result.setMessage("File already exists in path [" + path + "] and override is not allowed");
+            } else if (writeFile(path, content, override, createMissingFolders, durable)) {
+                result.addBytes(content.remaining());
+                result.addTracked(path);
+                result.setMessage("File is written in path [" + path + "]");
+            } else {
+                result.addFailed(path);
+                result.setMessage("Content cannot be written to path [" + path + "]");
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Runs the operation on the file I/O executor. Cancelling the future marks the result as cancelled, so the running
+     * operation stops at the next file.
+     */
+    private static CompletableFuture<FileOperationResult> async(FileOperationResult result,
+                                                                Callable<FileOperationResult> operation) {
+        CompletableFuture<FileOperationResult> future = new CompletableFuture<FileOperationResult>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                result.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        FileIOExecutor.getDefault().execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(operation.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
 }
@@ -0,0 +1,41 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate of bytes read or written by background operations, so they leave disk bandwidth to foreground ones.
+ * Callers report bytes after processing them and wait until the average rate since the throttle was created drops
+ * below the limit.
+ */
+class IOThrottle {
+
+    private final long bytesPerSecond;
+    private final long start = System.nanoTime();
+    private long bytes;
+
+    /**
+     * @param bytesPerSecond limit of the average rate; zero or less for no limit
+     */
+    IOThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @param count number of bytes just processed
+     * @throws InterruptedException thrown if the calling thread is interrupted while waiting
+     */
+    void acquire(long count) throws InterruptedException {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        long due;
+        synchronized (this) {
+            bytes += count;
+            due = start + (long) (bytes * 1e9 / bytesPerSecond);
+        }
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
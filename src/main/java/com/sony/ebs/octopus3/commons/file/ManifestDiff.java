@@ -0,0 +1,158 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.urn.URN;
+import com.sony.ebs.octopus3.commons.urn.URNCreationException;
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Files added, changed and removed between two {@link FileManifest}s, as URNs. Subfolders having the same hash in both
+ * manifests are skipped without visiting them, so comparing is proportional to the amount of change instead of the
+ * number of files.
+ * <p/>
+ * Manifests may belong to different folders, like "latest" and "previous" of a type. URNs of added and changed files
+ * are created from the folder of the newer manifest, and URNs of removed files from the folder of the older one, like
+ * {@link URNImpl#URNImpl(Path, Path)} does. Files whose names cannot be converted to URNs are skipped and counted.
+ */
+public class ManifestDiff {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManifestDiff.class);
+
+    private final Path base;
+    private final Path olderRoot;
+    private final Path newerRoot;
+    private final List<URN> added = new ArrayList<URN>();
+    private final List<URN> changed = new ArrayList<URN>();
+    private final List<URN> removed = new ArrayList<URN>();
+    private int skippedFolderCount;
+    private int skippedCount;
+
+    private ManifestDiff(Path base, Path olderRoot, Path newerRoot) {
+        this.base = base.toAbsolutePath().normalize();
+        this.olderRoot = olderRoot;
+        this.newerRoot = newerRoot;
+    }
+
+    /**
+     * @param older manifest built before, like the one of "previous" folder
+     * @param newer manifest built after, like the one of "latest" folder
+     * @param base  is the path of repository folder, like "/repo"; URNs are created relative to it
+     * @return files changed from the older manifest to the newer one
+     */
+    public static ManifestDiff compare(FileManifest older, FileManifest newer, Path base) {
+        ManifestDiff diff = new ManifestDiff(base, older.getRoot(), newer.getRoot());
+        diff.compare(older.getRootNode(), newer.getRootNode(), "");
+        logger.debug("Manifests of folders [" + older.getRoot() + "] and [" + newer.getRoot() + "] are compared; "
+                + diff.added.size() + " added, " + diff.changed.size() + " changed, " + diff.removed.size() + " removed, "
+                + diff.skippedFolderCount + " identical folders skipped");
+        return diff;
+    }
+
+    private void compare(FileManifest.Node older, FileManifest.Node newer, String relative) {
+        if (Arrays.equals(older.hash, newer.hash)) {
+            skippedFolderCount++;
+            return;
+        }
+        Iterator<Map.Entry<String, FileManifest.Node>> olderChildren = older.children.entrySet().iterator();
+        Iterator<Map.Entry<String, FileManifest.Node>> newerChildren = newer.children.entrySet().iterator();
+        FileManifest.Node o = next(olderChildren);
+        FileManifest.Node n = next(newerChildren);
+        while (o != null || n != null) {
+            int order = o == null ? 1 : n == null ? -1 : o.name.compareTo(n.name);
+            if (order < 0) {
+                collect(o, relative + o.name, olderRoot, removed);
+                o = next(olderChildren);
+            } else if (order > 0) {
+                collect(n, relative + n.name, newerRoot, added);
+                n = next(newerChildren);
+            } else {
+                String path = relative + n.name;
+                if (o.isDirectory() && n.isDirectory()) {
+                    compare(o, n, path + "/");
+                } else if (o.isDirectory() || n.isDirectory()) {
+                    collect(o, path, olderRoot, removed);
+                    collect(n, path, newerRoot, added);
+                } else if (!Arrays.equals(o.hash, n.hash)) {
+                    add(changed, newerRoot, path);
+                }
+                o = next(olderChildren);
+                n = next(newerChildren);
+            }
+        }
+    }
+
+    private void collect(FileManifest.Node node, String relative, Path root, List<URN> urns) {
+        if (!node.isDirectory()) {
+            add(urns, root, relative);
+            return;
+        }
+        for (FileManifest.Node child : node.children.values()) {
+            collect(child, relative + "/" + child.name, root, urns);
+        }
+    }
+
+    private void add(List<URN> urns, Path root, String relative) {
+        Path path = root.resolve(relative);
+        try {
+            urns.add(new URNImpl(base, path));
+        } catch (URNCreationException | IllegalArgumentException e) {
+            skippedCount++;
+            logger.debug("File [" + path + "] cannot be converted to URN", e);
+        }
+    }
+
+    private static FileManifest.Node next(Iterator<Map.Entry<String, FileManifest.Node>> iterator) {
+        return iterator.hasNext() ? iterator.next().getValue() : null;
+    }
+
+    /**
+     * @return URNs of files only in the newer manifest
+     */
+    public List<URN> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /**
+     * @return URNs of files in both manifests with different content, created from the newer folder
+     */
+    public List<URN> getChanged() {
+        return Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * @return URNs of files only in the older manifest
+     */
+    public List<URN> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * @return true if both manifests have the same content
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty() && skippedCount == 0;
+    }
+
+    /**
+     * @return number of identical folders, including the root, which are not visited
+     */
+    public int getSkippedFolderCount() {
+        return skippedFolderCount;
+    }
+
+    /**
+     * @return number of changed files which cannot be converted to URNs
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+}
@@ -0,0 +1,283 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies a file or folder with a pool of workers. The tree is walked by the calling thread, which creates every target
+ * folder once before its files are copied; files are copied by the workers. Files larger than
+ * {@link #TRANSFER_THRESHOLD} are copied with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * so the kernel moves the bytes without copying them into the JVM, into a temporary file which then replaces the target.
+ * <p/>
+ * Like {@link CopyFileVisitor}, contents of a folder are copied into the target folder, a single file is copied into
+ * the target folder and existing files are replaced. Files which cannot be copied are added to the failed files of the
+ * result and do not stop the others.
+ * <p/>
+ * In sync mode, files whose target has the same size and modification time are skipped; copied files get the
+ * modification time of their source, so the next sync skips them. If content is compared, files with the same size are
+ * compared byte by byte instead of by modification time. Target files and folders missing in the source can be
+ * deleted, before the files of their folder are copied.
+ */
+class ParallelCopyFileVisitor extends SimpleFileVisitor<Path> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelCopyFileVisitor.class);
+
+    static final long TRANSFER_THRESHOLD = 1024 * 1024;
+
+    private final Path source;
+    private final Path sourcePath;
+    private final Path targetPath;
+    private final FileOperationResult result;
+    private final ThreadPoolExecutor executor;
+
+    private final boolean sync;
+    private final boolean compareContent;
+    private final boolean deleteExtraneous;
+
+    ParallelCopyFileVisitor(Path source, Path targetPath, FileOperationResult result, int workers) {
+        this(source, targetPath, result, workers, false, false, false);
+    }
+
+    /**
+     * @param sync             true to skip files which are not changed
+     * @param compareContent   true to compare content of files with the same size instead of modification times
+     * @param deleteExtraneous true to delete target files and folders which are missing in the source folder
+     */
+    ParallelCopyFileVisitor(Path source, Path targetPath, FileOperationResult result, int workers,
+                            boolean sync, boolean compareContent, boolean deleteExtraneous) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers [" + workers + "] should be positive");
+        }
+        this.sync = sync;
+        this.compareContent = compareContent;
+        this.deleteExtraneous = deleteExtraneous;
+        this.source = source;
+        this.sourcePath = Files.isDirectory(source) ? source : source.getParent();
+        this.targetPath = targetPath;
+        this.result = result;
+        // copies are queued up to a limit, then the walking thread copies files itself until workers catch up
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(workers * 64), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    FileOperationResult getResult() {
+        return result;
+    }
+
+    /**
+     * Walks the source and waits until all files are copied
+     *
+     * @throws IOException thrown if the source cannot be walked
+     */
+    void copy() throws IOException {
+        try {
+            // folders are created while walking; target of a single file is created here
+            Files.createDirectories(targetPath);
+            Files.walkFileTree(source, this);
+        } finally {
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    logger.debug("Waiting for copy of [" + source + "] to [" + targetPath + "]");
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (result.isCancelled()) {
+            return FileVisitResult.TERMINATE;
+        }
+        Path targetDir = targetPath.resolve(sourcePath.relativize(dir).toString());
+        try {
+            Files.createDirectories(targetDir);
+            if (deleteExtraneous) {
+                deleteExtraneous(dir, targetDir);
+            }
+            return FileVisitResult.CONTINUE;
+        } catch (Exception e) {
+            result.addFailed(dir);
+            logger.debug("Unable to create directory [" + targetDir + "] due to errors", e);
+            return FileVisitResult.SKIP_SUBTREE;
+        }
+    }
+
+    @Override
+    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+        if (result.isCancelled()) {
+            return FileVisitResult.TERMINATE;
+        }
+        final Path targetFile = targetPath.resolve(sourcePath.relativize(file).toString());
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                copyFile(file, targetFile, attrs);
+            }
+        });
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        result.addFailed(file);
+        logger.debug("Unable to read file [" + file + "] due to errors", exc);
+        return FileVisitResult.CONTINUE;
+    }
+
+    private void copyFile(Path file, Path targetFile, BasicFileAttributes attrs) {
+        if (result.isCancelled()) {
+            return;
+        }
+        try {
+            if (sync && isUnchanged(file, targetFile, attrs)) {
+                result.addSkipped();
+                return;
+            }
+            long size = attrs.size();
+            if (size < TRANSFER_THRESHOLD) {
+                Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                size = transfer(file, targetFile);
+            }
+            if (sync) {
+                Files.setLastModifiedTime(targetFile, attrs.lastModifiedTime());
+            }
+            result.addBytes(size);
+            result.addTracked(file);
+            logger.debug("File [" + file + "] is copied to target [" + targetFile + "]");
+        } catch (Exception e) {
+            result.addFailed(file);
+            logger.debug("Unable to copy file [" + file + "] due to errors", e);
+        }
+    }
+
+    private boolean isUnchanged(Path file, Path targetFile, BasicFileAttributes attrs) throws IOException {
+        BasicFileAttributes targetAttrs;
+        try {
+            targetAttrs = Files.readAttributes(targetFile, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (!targetAttrs.isRegularFile() || targetAttrs.size() != attrs.size()) {
+            return false;
+        }
+        if (compareContent) {
+            return sameContent(file, targetFile);
+        }
+        return targetAttrs.lastModifiedTime().equals(attrs.lastModifiedTime());
+    }
+
+    /**
+     * Deletes the entries of a target folder which are missing in the source folder or are a file in one and a folder
+     * in the other
+     */
+    private void deleteExtraneous(Path dir, Path targetDir) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(targetDir)) {
+            for (Path target : stream) {
+                Path file = dir.resolve(target.getFileName().toString());
+                if (Files.exists(file, LinkOption.NOFOLLOW_LINKS)
+                        && ParallelDeleteTask.isDirectory(file) == ParallelDeleteTask.isDirectory(target)) {
+                    continue;
+                }
+                FileUtils.delete(target, false, new FileOperationResult(false, new FileOperationListener() {
+                    @Override
+                    public void onTracked(Path path) {
+                        result.addDeleted(path);
+                    }
+
+                    @Override
+                    public void onFailed(Path path) {
+                        result.addFailed(path);
+                    }
+                }));
+                logger.debug("Extraneous file/folder [" + target + "] is deleted");
+            }
+        }
+    }
+
+    static boolean sameContent(Path file, Path otherFile) throws IOException {
+        try (InputStream in = Files.newInputStream(file);
+             InputStream otherIn = Files.newInputStream(otherFile)) {
+            byte[] buffer = new byte[64 * 1024];
+            byte[] otherBuffer = new byte[buffer.length];
+            while (true) {
+                int count = readFully(in, buffer);
+                if (count != readFully(otherIn, otherBuffer)) {
+                    return false;
+                }
+                if (count == 0) {
+                    return true;
+                }
+                if (!Arrays.equals(buffer, otherBuffer)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int count = 0;
+        int read;
+        while (count < buffer.length && (read = in.read(buffer, count, buffer.length - count)) > 0) {
+            count += read;
+        }
+        return count;
+    }
+
+    /**
+     * Copies a large file into a temporary file next to the target, which then replaces the target, like
+     * {@link AtomicFileWriter}. The target is never written in place, so files hard linked to it, like by
+     * {@link ContentStore}, are not changed.
+     *
+     * @return number of bytes copied
+     * @throws IOException thrown if the file cannot be copied or it is truncated while copying; the target is not
+     *                     changed then
+     */
+    static long transfer(Path file, Path targetFile) throws IOException {
+        Path temporary = AtomicFileWriter.temporaryPath(targetFile.toAbsolutePath());
+        boolean moved = false;
+        try {
+            long position = 0;
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long size = in.size();
+                while (position < size) {
+                    long count = in.transferTo(position, size - position, out);
+                    if (count <= 0) {
+                        break;
+                    }
+                    position += count;
+                }
+                if (position < size) {
+                    throw new IOException("File [" + file + "] is truncated while copying; [" + position + "] of ["
+                            + size + "] bytes are copied");
+                }
+            }
+            try {
+                Files.move(temporary, targetFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+            return position;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Deletes a folder in a fork/join pool. Subfolders are deleted concurrently and large folders are split into batches
+ * of files. A folder is deleted after all of its children are deleted. Like {@link FileUtils#delete(Path, boolean)},
+ * failures of single files are recorded and do not stop the deletion of the others.
+ */
+class ParallelDeleteTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelDeleteTask.class);
+
+    static final int BATCH_SIZE = 256;
+
+    private final Path dir;
+    private final FileOperationResult result;
+
+    ParallelDeleteTask(Path dir, FileOperationResult result) {
+        this.dir = dir;
+        this.result = result;
+    }
+
+    @Override
+    protected void compute() {
+        if (result.isCancelled()) {
+            return;
+        }
+        List<RecursiveAction> subtasks = new ArrayList<RecursiveAction>();
+        List<Path> files = new ArrayList<Path>(BATCH_SIZE);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                if (isDirectory(path)) {
+                    subtasks.add(fork(new ParallelDeleteTask(path, result)));
+                } else {
+                    files.add(path);
+                    if (files.size() == BATCH_SIZE) {
+                        subtasks.add(fork(new FilesTask(files, result)));
+                        files = new ArrayList<Path>(BATCH_SIZE);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Unable to list directory [" + dir + "] due to errors", e);
+            deleteFiles(files, result);
+            joinAll(subtasks);
+            return;
+        }
+        deleteFiles(files, result);
+        joinAll(subtasks);
+        if (result.isCancelled()) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(dir);
+        } catch (Exception e) {
+            logger.debug("Unable to delete directory [" + dir + "] due to errors", e);
+        }
+    }
+
+    static boolean isDirectory(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isDirectory();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void deleteFiles(List<Path> files, FileOperationResult result) {
+        for (Path file : files) {
+            if (result.isCancelled()) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(file);
+                result.addTracked(file);
+            } catch (Exception e) {
+                result.addFailed(file);
+                logger.debug("Unable to delete file [" + file + "] due to errors", e);
+            }
+        }
+    }
+
+    private static RecursiveAction fork(RecursiveAction task) {
+        task.fork();
+        return task;
+    }
+
+    private static void joinAll(List<RecursiveAction> tasks) {
+        for (RecursiveAction task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * Deletes a batch of files of a folder
+     */
+    private static class FilesTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final FileOperationResult result;
+
+        FilesTask(List<Path> files, FileOperationResult result) {
+            this.files = files;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+            deleteFiles(files, result);
+        }
+    }
+}
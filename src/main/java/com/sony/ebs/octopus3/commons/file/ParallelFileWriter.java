@@ -0,0 +1,161 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes many files atomically with a pool of workers. Files are grouped by their folders, so every folder is
+ * checked and created only once instead of once per file. Files of a folder are written in batches by the workers.
+ * If it is durable, every file is forced to the disk and every folder is forced once after all of its files are
+ * renamed. Files which should not be replaced are published with a hard link, which fails if they exist, so they are
+ * not replaced even if they are created during the write.
+ */
+class ParallelFileWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelFileWriter.class);
+
+    static final int BATCH_SIZE = 64;
+
+    private final FileOperationResult result;
+    private final int workers;
+    private final boolean override;
+    private final boolean createMissingFolders;
+    private final boolean durable;
+
+    /**
+     * @param workers              number of threads writing files
+     * @param override             true to replace existing files, false to skip them
+     * @param createMissingFolders true to create parent folders
+     * @param durable              true to force files and folders to the disk
+     */
+    ParallelFileWriter(FileOperationResult result, int workers, boolean override, boolean createMissingFolders,
+                       boolean durable) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers [" + workers + "] should be positive");
+        }
+        this.result = result;
+        this.workers = workers;
+        this.override = override;
+        this.createMissingFolders = createMissingFolders;
+        this.durable = durable;
+    }
+
+    /**
+     * Writes all files and waits until they are written
+     *
+     * @param files contents by paths; contents are written from their positions to their limits
+     * @throws InterruptedException thrown if the calling thread is interrupted while waiting
+     */
+    void write(Map<Path, ByteBuffer> files) throws InterruptedException {
+        Map<Path, List<Path>> groups = new LinkedHashMap<Path, List<Path>>();
+        for (Path path : files.keySet()) {
+            Path dir = path.toAbsolutePath().getParent();
+            List<Path> group = groups.get(dir);
+            if (group == null) {
+                group = new ArrayList<Path>();
+                groups.put(dir, group);
+            }
+            group.add(path);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, Math.max(1, files.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            List<Path> written = new ArrayList<Path>();
+            for (Map.Entry<Path, List<Path>> group : groups.entrySet()) {
+                Path dir = group.getKey();
+                try {
+                    prepare(dir);
+                } catch (IOException e) {
+                    logger.debug("Unable to prepare directory [" + dir + "] due to errors", e);
+                    for (Path path : group.getValue()) {
+                        result.addFailed(path);
+                    }
+                    continue;
+                }
+                written.add(dir);
+                List<Path> paths = group.getValue();
+                for (int i = 0; i < paths.size(); i += BATCH_SIZE) {
+                    final List<Path> batch = paths.subList(i, Math.min(paths.size(), i + BATCH_SIZE));
+                    futures.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (Path path : batch) {
+                                write(path, files.get(path));
+                            }
+                        }
+                    }));
+                }
+            }
+            await(futures);
+
+            if (durable) {
+                futures.clear();
+                for (final Path dir : written) {
+                    futures.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            AtomicFileWriter.syncDirectory(dir);
+                        }
+                    }));
+                }
+                await(futures);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the folder if it is missing
+     */
+    private void prepare(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            if (!createMissingFolders) {
+                throw new IOException("Directory [" + dir + "] is not found and creating folders is not allowed");
+            }
+            Files.createDirectories(dir);
+        }
+    }
+
+    private void write(Path path, ByteBuffer content) {
+        if (result.isCancelled()) {
+            return;
+        }
+        try {
+            result.addBytes(override ? AtomicFileWriter.write(path, content, durable, false)
+                    : AtomicFileWriter.writeNew(path, content, durable, false));
+            result.addTracked(path);
+        } catch (FileAlreadyExistsException e) {
+            result.addSkipped();
+            logger.debug("File already exists in path [" + path + "] and override is not allowed");
+        } catch (Exception e) {
+            result.addFailed(path);
+            logger.debug("Content cannot be written to path [" + path + "]", e);
+        }
+    }
+
+    private static void await(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                logger.debug("Unable to write files due to errors", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts a zip archive into a folder with a pool of workers. The central directory is read once by {@link ZipFile},
+ * which reads entries by their offsets, so workers extract different entries at the same time. All folders are created
+ * by the calling thread before the files are extracted.
+ * <p/>
+ * Entries whose paths point outside of the target folder, like "../../etc/passwd", are not extracted and are added to
+ * the failed paths of the result.
+ */
+class ParallelZipExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelZipExtractor.class);
+
+    private final Path zipFilePath;
+    private final Path targetPath;
+    private final FileOperationResult result;
+    private final int workers;
+    private final boolean override;
+
+    /**
+     * @param workers  number of threads extracting files
+     * @param override true to replace existing files, false to skip them
+     */
+    ParallelZipExtractor(Path zipFilePath, Path targetPath, FileOperationResult result, int workers, boolean override) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers [" + workers + "] should be positive");
+        }
+        this.zipFilePath = zipFilePath;
+        this.targetPath = targetPath.toAbsolutePath().normalize();
+        this.result = result;
+        this.workers = workers;
+        this.override = override;
+    }
+
+    /**
+     * Extracts all entries and waits until they are written
+     *
+     * @throws IOException thrown if the archive cannot be read or the target folder cannot be created
+     */
+    void extract() throws IOException {
+        try (ZipFile zipFile = new ZipFile(zipFilePath.toFile())) {
+            Files.createDirectories(targetPath);
+            List<ZipEntry> files = new ArrayList<ZipEntry>();
+            List<Path> targets = new ArrayList<Path>();
+            Set<Path> folders = new HashSet<Path>();
+            folders.add(targetPath);
+
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                Path target = targetPath.resolve(entry.getName()).normalize();
+                if (!target.startsWith(targetPath) || (target.equals(targetPath) && !entry.isDirectory())) {
+                    result.addFailed(target);
+                    logger.debug("Entry [" + entry.getName() + "] of zip [" + zipFilePath + "] is outside of target [" + targetPath + "]");
+                    continue;
+                }
+                Path folder = entry.isDirectory() ? target : target.getParent();
+                if (folders.add(folder)) {
+                    try {
+                        Files.createDirectories(folder);
+                    } catch (IOException e) {
+                        logger.debug("Unable to create directory [" + folder + "] due to errors", e);
+                    }
+                }
+                if (!entry.isDirectory()) {
+                    files.add(entry);
+                    targets.add(target);
+                }
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, Math.max(1, files.size())));
+            try {
+                for (int i = 0; i < files.size(); i++) {
+                    final ZipEntry entry = files.get(i);
+                    final Path target = targets.get(i);
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            extract(zipFile, entry, target);
+                        }
+                    });
+                }
+            } finally {
+                executor.shutdown();
+                try {
+                    while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                        logger.debug("Waiting for extraction of [" + zipFilePath + "] to [" + targetPath + "]");
+                    }
+                } catch (InterruptedException e) {
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Extraction of [" + zipFilePath + "] is interrupted", e);
+                }
+            }
+        }
+    }
+
+    private void extract(ZipFile zipFile, ZipEntry entry, Path target) {
+        try {
+            if (!override && Files.exists(target)) {
+                result.addSkipped();
+                logger.debug("File already exists in path [" + target + "] and override is not allowed");
+                return;
+            }
+            long size;
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                size = Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (entry.getTime() != -1) {
+                Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getTime()));
+            }
+            result.addBytes(size);
+            result.addTracked(target);
+        } catch (Exception e) {
+            result.addFailed(target);
+            logger.debug("Unable to extract entry [" + entry.getName() + "] to [" + target + "] due to errors", e);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Zips a file or folder into a new archive which is written sequentially. Files are deflated by a pool of workers
+ * while the calling thread walks the tree and writes finished entries in the order of the walk. Only a limited number
+ * of entries are kept in progress, so memory use does not depend on the size of the tree.
+ * <p/>
+ * Like {@link ZipFileVisitor}, contents of a folder are zipped with paths relative to the folder and a single file is
+ * zipped by its name. Files which are compressed already, like images and archives, are stored without compression, so
+ * are files which deflate does not make smaller. Deflated data of files larger than {@link #IN_MEMORY_LIMIT} is kept
+ * in a temporary file until it is written.
+ * <p/>
+ * An {@link IOThrottle} can limit the rate of reading files, which workers report for every chunk they read, and of
+ * writing entries into the archive.
+ */
+class ParallelZipFileVisitor extends SimpleFileVisitor<Path> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelZipFileVisitor.class);
+
+    static final long IN_MEMORY_LIMIT = 8 * 1024 * 1024;
+
+    static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp", "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar",
+            "mp3", "mp4", "avi", "mov"));
+
+    private final Path fileOrFolderToZip;
+    private final Path root;
+    private final FileOperationResult result;
+    private final ExecutorService executor;
+    private final int window;
+    private final int level;
+    private final IOThrottle throttle;
+    private final Deque<Pending> pending = new ArrayDeque<Pending>();
+    private final ZipStreamWriter writer;
+
+    /**
+     * @param workers number of threads deflating files
+     * @param level   compression level from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION}
+     */
+    ParallelZipFileVisitor(Path zipFilePath, Path fileOrFolderToZip, FileOperationResult result, int workers, int level)
+            throws IOException {
+        this(zipFilePath, fileOrFolderToZip, result, workers, level, new IOThrottle(0));
+    }
+
+    /**
+     * @param throttle limit of reading files and writing the archive
+     */
+    ParallelZipFileVisitor(Path zipFilePath, Path fileOrFolderToZip, FileOperationResult result, int workers, int level,
+                           IOThrottle throttle) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers [" + workers + "] should be positive");
+        }
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level [" + level + "] should be between -1 and 9");
+        }
+        this.fileOrFolderToZip = fileOrFolderToZip;
+        this.root = Files.isDirectory(fileOrFolderToZip) ? fileOrFolderToZip : fileOrFolderToZip.getParent();
+        this.result = result;
+        this.level = level;
+        this.throttle = throttle;
+        this.window = workers * 4;
+        this.writer = new ZipStreamWriter(zipFilePath);
+        this.executor = Executors.newFixedThreadPool(workers);
+    }
+
+    /**
+     * Walks the file or folder and completes the archive
+     *
+     * @throws IOException thrown if the archive cannot be written; the incomplete archive is left to the caller
+     */
+    void zip() throws IOException {
+        boolean completed = false;
+        try {
+            Files.walkFileTree(fileOrFolderToZip, this);
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            writer.close();
+            completed = true;
+        } finally {
+            executor.shutdownNow();
+            if (!completed) {
+                writer.abort();
+                discardPending();
+            }
+        }
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        checkCancelled();
+        if (!dir.equals(root)) {
+            ZipStreamWriter.Entry entry = new ZipStreamWriter.Entry(nameOf(dir) + "/", true);
+            entry.dosTime = ZipStreamWriter.dosTime(attrs.lastModifiedTime().toMillis());
+            FutureTask<ZipStreamWriter.Entry> done = new FutureTask<ZipStreamWriter.Entry>(new Completed(entry));
+            done.run();
+            add(new Pending(dir, done));
+        }
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        checkCancelled();
+        add(new Pending(file, executor.submit(new DeflateTask(file, nameOf(file), attrs, level, throttle))));
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+        if (file.equals(fileOrFolderToZip)) {
+            throw exc;
+        }
+        result.addFailed(file);
+        logger.debug("Unable to read file [" + file + "] due to errors", exc);
+        return FileVisitResult.CONTINUE;
+    }
+
+    private void checkCancelled() throws IOException {
+        if (result.isCancelled()) {
+            throw new IOException("Zipping of [" + fileOrFolderToZip + "] is cancelled");
+        }
+    }
+
+    private String nameOf(Path path) {
+        String name = root.relativize(path).toString();
+        return path.getFileSystem().getSeparator().equals("/") ? name : name.replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    private void add(Pending next) throws IOException {
+        pending.addLast(next);
+        if (pending.size() > window) {
+            writeNext();
+        }
+    }
+
+    /**
+     * Waits for the oldest entry and writes it
+     */
+    private void writeNext() throws IOException {
+        checkCancelled();
+        Pending next = pending.removeFirst();
+        ZipStreamWriter.Entry entry;
+        try {
+            entry = next.future.get();
+        } catch (ExecutionException e) {
+            result.addFailed(next.path);
+            logger.debug("Unable to zip file [" + next.path + "] due to errors", e.getCause());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Zipping of [" + fileOrFolderToZip + "] is interrupted", e);
+        }
+        try {
+            writer.write(entry);
+            throttle.acquire(entry.compressedSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Zipping of [" + fileOrFolderToZip + "] is interrupted", e);
+        } finally {
+            deleteTemporary(next.path, entry);
+        }
+        if (!entry.directory) {
+            result.addBytes(entry.size);
+            result.addTracked(next.path);
+        }
+    }
+
+    private void discardPending() {
+        for (Pending next : pending) {
+            next.future.cancel(true);
+            try {
+                deleteTemporary(next.path, next.future.get());
+            } catch (Exception e) {
+                // cancelled or failed entries have no temporary files left
+            }
+        }
+        pending.clear();
+    }
+
+    private static void deleteTemporary(Path file, ZipStreamWriter.Entry entry) {
+        if (entry.dataFile != null && !entry.dataFile.equals(file)) {
+            try {
+                Files.deleteIfExists(entry.dataFile);
+            } catch (IOException e) {
+                logger.debug("Unable to delete temporary file [" + entry.dataFile + "] due to errors", e);
+            }
+        }
+    }
+
+    static boolean isCompressed(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * A file or folder walked but not written yet
+     */
+    private static class Pending {
+        final Path path;
+        final Future<ZipStreamWriter.Entry> future;
+
+        Pending(Path path, Future<ZipStreamWriter.Entry> future) {
+            this.path = path;
+            this.future = future;
+        }
+    }
+
+    private static class Completed implements Callable<ZipStreamWriter.Entry> {
+        private final ZipStreamWriter.Entry entry;
+
+        Completed(ZipStreamWriter.Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public ZipStreamWriter.Entry call() {
+            return entry;
+        }
+    }
+
+    /**
+     * Computes CRC of a file and deflates it unless it is better stored
+     */
+    private static class DeflateTask implements Callable<ZipStreamWriter.Entry> {
+        private final Path file;
+        private final String name;
+        private final BasicFileAttributes attrs;
+        private final int level;
+        private final IOThrottle throttle;
+
+        DeflateTask(Path file, String name, BasicFileAttributes attrs, int level, IOThrottle throttle) {
+            this.file = file;
+            this.name = name;
+            this.attrs = attrs;
+            this.level = level;
+            this.throttle = throttle;
+        }
+
+        @Override
+        public ZipStreamWriter.Entry call() throws IOException {
+            ZipStreamWriter.Entry entry = new ZipStreamWriter.Entry(name, false);
+            entry.dosTime = ZipStreamWriter.dosTime(attrs.lastModifiedTime().toMillis());
+            if (level == Deflater.NO_COMPRESSION || isCompressed(name)) {
+                long size = 0;
+                CRC32 crc = new CRC32();
+                try (InputStream in = Files.newInputStream(file)) {
+                    byte[] bytes = new byte[64 * 1024];
+                    int read;
+                    while ((read = in.read(bytes)) > 0) {
+                        crc.update(bytes, 0, read);
+                        size += read;
+                        throttle(read);
+                    }
+                }
+                entry.crc = crc.getValue();
+                entry.size = size;
+                store(entry);
+                return entry;
+            }
+
+            Path temporary = attrs.size() > IN_MEMORY_LIMIT ? Files.createTempFile("zip-", ".deflated") : null;
+            Buffer buffer = temporary == null ? new Buffer((int) Math.max(32, attrs.size() / 2)) : null;
+            Deflater deflater = new Deflater(level, true);
+            CRC32 crc = new CRC32();
+            try {
+                try (InputStream in = Files.newInputStream(file);
+                     OutputStream out = new DeflaterOutputStream(
+                             temporary == null ? buffer : Files.newOutputStream(temporary), deflater, 64 * 1024)) {
+                    byte[] bytes = new byte[64 * 1024];
+                    int read;
+                    while ((read = in.read(bytes)) > 0) {
+                        crc.update(bytes, 0, read);
+                        out.write(bytes, 0, read);
+                        throttle(read);
+                    }
+                }
+                entry.crc = crc.getValue();
+                entry.size = deflater.getBytesRead();
+                entry.compressedSize = deflater.getBytesWritten();
+            } catch (IOException e) {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+                throw e;
+            } finally {
+                deflater.end();
+            }
+
+            if (entry.compressedSize >= entry.size) {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+                store(entry);
+            } else {
+                entry.method = ZipEntry.DEFLATED;
+                entry.data = buffer != null ? buffer.array() : null;
+                entry.dataFile = temporary;
+            }
+            return entry;
+        }
+
+        private void throttle(int read) throws IOException {
+            try {
+                throttle.acquire(read);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Reading of file [" + file + "] is interrupted", e);
+            }
+        }
+
+        /**
+         * Stores the file as it is; CRC and size of the entry should be set
+         */
+        private void store(ZipStreamWriter.Entry entry) {
+            entry.method = ZipEntry.STORED;
+            entry.compressedSize = entry.size;
+            entry.data = null;
+            entry.dataFile = file;
+        }
+    }
+
+    /**
+     * Gives access to the written bytes without copying them
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import java.nio.file.Path;
+
+/**
+ * Receives progress of an asynchronous file operation, like {@link FileUtils#copyAsync}. It is called after every
+ * file, possibly from several threads at the same time, so it should be thread-safe and return quickly.
+ */
+public interface ProgressCallback {
+
+    /**
+     * @param path  file which is just processed, either successfully or not
+     * @param files number of files processed so far
+     * @param bytes number of bytes processed so far
+     */
+    void onProgress(Path path, int files, long bytes);
+}
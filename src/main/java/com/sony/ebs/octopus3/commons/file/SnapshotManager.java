@@ -0,0 +1,290 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.flows.RepoValue;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Publishes snapshots of a repository folder as its {@link RepoValue#latest} folder and rotates older ones to
+ * {@link RepoValue#previous} and {@link RepoValue#archive}, without copying files. A snapshot is built in a staging
+ * folder, which is then published in constant time, like:
+ * <pre>
+ * SnapshotManager snapshots = new SnapshotManager(Paths.get("/repo/global_sku/score"));
+ * Path staging = snapshots.createStaging();
+ * ... write files into staging ...
+ * snapshots.publish(staging);
+ * </pre>
+ * Publishing makes the staging folder latest, the latest one previous and the previous one retired. Retired snapshots
+ * are zipped into the archive folder, like "archive/20141116T101500000.zip", and deleted in the background.
+ * <p/>
+ * In {@link Mode#RENAME} mode, latest and previous are real folders which are renamed one after the other, so latest is
+ * missing for the moment between two renames. In {@link Mode#SYMLINK} mode, they are symbolic links to snapshot folders
+ * and every link is replaced by a single atomic rename, so readers always find a complete latest snapshot. Walkers not
+ * following links, like {@link URNRepositoryScanner}, should be given {@link #resolve(RepoValue)} then.
+ * <p/>
+ * Staging, snapshot and retired folders are kept in a snapshot store, which should be on the same file system as the
+ * repository folder. By default it is the hidden ".snapshots" folder in the repository folder, which
+ * {@link URNRepositoryScanner} and {@link FileChangeFeed} skip; a store outside of the repository can be given
+ * instead. Publishing is synchronized in a single process only.
+ */
+public class SnapshotManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotManager.class);
+
+    public static final String SNAPSHOTS_FOLDER = ".snapshots";
+
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormat.forPattern("yyyyMMdd'T'HHmmssSSS").withZoneUTC();
+    private static final AtomicLong lastId = new AtomicLong();
+
+    public enum Mode {
+        RENAME, SYMLINK
+    }
+
+    private final Path folder;
+    private final Mode mode;
+    private final Path latest;
+    private final Path previous;
+    private final Path archive;
+    private final Path staging;
+    private final Path generations;
+    private final Path retired;
+    private boolean archiving = true;
+    private int workers = 2;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * @param folder repository folder having latest, previous and archive folders, like "/repo/global_sku/score"
+     */
+    public SnapshotManager(Path folder) {
+        this(folder, Mode.RENAME);
+    }
+
+    public SnapshotManager(Path folder, Mode mode) {
+        this(folder, folder.resolve(SNAPSHOTS_FOLDER), mode);
+    }
+
+    /**
+     * @param folder repository folder having latest, previous and archive folders, like "/repo/global_sku/score"
+     * @param store  folder to keep staging, snapshot and retired folders in, like "/snapshots/global_sku/score"; it
+     *               should be on the same file system as the repository folder
+     */
+    public SnapshotManager(Path folder, Path store, Mode mode) {
+        this.folder = folder.toAbsolutePath().normalize();
+        this.mode = mode;
+        this.latest = this.folder.resolve(RepoValue.latest.name());
+        this.previous = this.folder.resolve(RepoValue.previous.name());
+        this.archive = this.folder.resolve(RepoValue.archive.name());
+        Path snapshots = store.toAbsolutePath().normalize();
+        this.staging = snapshots.resolve("staging");
+        this.generations = snapshots.resolve("generations");
+        this.retired = snapshots.resolve("retired");
+    }
+
+    /**
+     * @param archiving false to delete retired snapshots without zipping them
+     */
+    public SnapshotManager withArchiving(boolean archiving) {
+        this.archiving = archiving;
+        return this;
+    }
+
+    /**
+     * @param workers number of threads compressing a retired snapshot
+     * @param level   compression level from 0 to 9
+     */
+    public SnapshotManager withCompression(int workers, int level) {
+        this.workers = workers;
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * @return new empty folder to build a snapshot in
+     * @throws IOException thrown if the folder cannot be created
+     */
+    public Path createStaging() throws IOException {
+        Path path = (mode == Mode.SYMLINK ? generations : staging).resolve(nextId());
+        Files.createDirectories(path);
+        logger.debug("Staging folder [" + path + "] is created");
+        return path;
+    }
+
+    /**
+     * Publishes the staging folder as latest and rotates older snapshots
+     *
+     * @param stagingPath folder created by {@link #createStaging()}
+     * @return future of deleting the retired snapshot after it is archived; completed with null if nothing is
+     * retired, or exceptionally if the retired snapshot cannot be archived, in which case it is kept
+     * @throws IOException thrown if the snapshot cannot be published; older snapshots are restored then
+     */
+    public synchronized CompletableFuture<FileOperationResult> publish(Path stagingPath) throws IOException {
+        Path path = stagingPath.toAbsolutePath().normalize();
+        if (!Files.isDirectory(path) || !path.startsWith(mode == Mode.SYMLINK ? generations : staging)) {
+            throw new IllegalArgumentException("Folder [" + stagingPath + "] is not a staging folder of [" + folder + "]");
+        }
+        Files.createDirectories(folder);
+        Path old = mode == Mode.SYMLINK ? publishLink(path) : publishRename(path);
+        logger.debug("Snapshot [" + path + "] is published as [" + latest + "]");
+        if (old == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return retire(old);
+    }
+
+    /**
+     * @param value latest or previous
+     * @return real path of the snapshot, following the link in {@link Mode#SYMLINK} mode
+     * @throws IOException thrown if there is no such snapshot
+     */
+    public Path resolve(RepoValue value) throws IOException {
+        return folder.resolve(value.name()).toRealPath();
+    }
+
+    public Path getFolder() {
+        return folder;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return previous snapshot which is replaced
+     */
+    private Path publishRename(Path path) throws IOException {
+        Path old = null;
+        if (Files.exists(previous, LinkOption.NOFOLLOW_LINKS)) {
+            old = retired.resolve(nextId());
+            Files.createDirectories(retired);
+            move(previous, old);
+        }
+        boolean rotated = false;
+        try {
+            if (Files.exists(latest, LinkOption.NOFOLLOW_LINKS)) {
+                move(latest, previous);
+                rotated = true;
+            }
+            move(path, latest);
+        } catch (IOException e) {
+            logger.debug("Unable to publish snapshot [" + path + "]; restoring older snapshots", e);
+            if (rotated) {
+                restore(previous, latest);
+            }
+            if (old != null) {
+                restore(old, previous);
+            }
+            throw e;
+        }
+        return old;
+    }
+
+    /**
+     * @return snapshot previous link pointed to, which is not linked anymore
+     */
+    private Path publishLink(Path path) throws IOException {
+        Path latestTarget = linkTarget(latest);
+        Path previousTarget = linkTarget(previous);
+        if (latestTarget != null) {
+            link(previous, latestTarget);
+        }
+        try {
+            link(latest, path);
+        } catch (IOException e) {
+            logger.debug("Unable to publish snapshot [" + path + "]; restoring older snapshots", e);
+            if (previousTarget != null) {
+                link(previous, previousTarget);
+            }
+            throw e;
+        }
+        return previousTarget;
+    }
+
+    /**
+     * @return folder the link points to; a real folder is moved under generations first
+     */
+    private Path linkTarget(Path link) throws IOException {
+        if (Files.isSymbolicLink(link)) {
+            return link.resolveSibling(Files.readSymbolicLink(link)).normalize();
+        }
+        if (!Files.exists(link, LinkOption.NOFOLLOW_LINKS)) {
+            return null;
+        }
+        Path target = generations.resolve(nextId());
+        Files.createDirectories(generations);
+        move(link, target);
+        logger.debug("Folder [" + link + "] is moved to [" + target + "] to be linked");
+        return target;
+    }
+
+    /**
+     * Replaces the link atomically by renaming a new link over it
+     */
+    private void link(Path link, Path target) throws IOException {
+        Path temporary = link.resolveSibling("." + link.getFileName() + System.nanoTime() + ".tmp");
+        Files.createSymbolicLink(temporary, link.getParent().relativize(target));
+        try {
+            Files.move(temporary, link, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Zips the retired snapshot into the archive folder and deletes it in the background. The archive is written and
+     * verified like by {@link ArchiveCompactor}, so an archive is left only if it is complete.
+     */
+    private CompletableFuture<FileOperationResult> retire(final Path old) {
+        if (!archiving) {
+            return FileUtils.deleteAsync(old, false, null);
+        }
+        final Path zipPath = archive.resolve(old.getFileName() + ".zip");
+        final CompletableFuture<FileOperationResult> archived = new CompletableFuture<FileOperationResult>();
+        FileIOExecutor.getDefault().execute(() -> {
+            try {
+                Files.createDirectories(archive);
+                archived.complete(ArchiveCompactor.archive(old, zipPath, workers, level, new IOThrottle(0), null));
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Unable to archive snapshot [" + old + "] to [" + zipPath + "]; it is kept", e);
+                archived.completeExceptionally(new IOException("Unable to archive snapshot [" + old + "] to [" + zipPath + "]", e));
+            }
+        });
+        return archived.thenCompose(zipped -> {
+            logger.debug("Snapshot [" + old + "] is archived to [" + zipPath + "]");
+            return FileUtils.deleteAsync(old, false, null);
+        });
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void restore(Path source, Path target) {
+        try {
+            move(source, target);
+        } catch (IOException e) {
+            logger.debug("Unable to restore [" + source + "] to [" + target + "]", e);
+        }
+    }
+
+    /**
+     * @return unique and increasing id like "20141116T101500000", from the current time in UTC
+     */
+    private static String nextId() {
+        long now = System.currentTimeMillis();
+        long id;
+        long last;
+        do {
+            last = lastId.get();
+            id = Math.max(now, last + 1);
+        } while (!lastId.compareAndSet(last, id));
+        return ID_FORMAT.print(id);
+    }
+}
@@ -0,0 +1,343 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.flows.RepoValue;
+import com.sony.ebs.octopus3.commons.urn.URN;
+import com.sony.ebs.octopus3.commons.urn.URNCreationException;
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enumerates the files of a repository folder as URNs, the same way {@link URNImpl#URNImpl(Path, Path)} maps a file
+ * to a URN. Subdirectories are walked in parallel by a fork/join pool and URNs are streamed as they are found, so the
+ * whole repository is never kept in memory.
+ * <p/>
+ * URNs are delivered either to a callback, which runs on the worker threads, or through an iterator backed by a
+ * bounded queue. When the consumer of the iterator is slower than the walk, workers wait for free space in the
+ * queue. Scans can be limited to a type or a prefix, in which case only the matching folder is walked, and to
+ * URNs containing a {@link RepoValue} folder like "latest".
+ * <p/>
+ * Hidden files and folders, whose names start with a dot like temporary files and snapshot stores, are not scanned.
+ * Files whose names cannot be converted to URNs and folders which cannot be listed are skipped and counted.
+ */
+public class URNRepositoryScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(URNRepositoryScanner.class);
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final Path base;
+    private Path start;
+    private String folder;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    private final AtomicLong scannedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    /**
+     * Receives URNs found during the scan. It is called concurrently from the worker threads.
+     */
+    public interface Callback {
+        void onURN(URN urn);
+    }
+
+    /**
+     * @param base is the path of repository folder, like "/repo"; URNs are created relative to it
+     */
+    public URNRepositoryScanner(Path base) {
+        this.base = base;
+        this.start = base;
+    }
+
+    /**
+     * Limits the scan to the URNs of the given type, like "global_sku"
+     */
+    public URNRepositoryScanner withType(String type) {
+        this.start = base.resolve(type.toLowerCase());
+        return this;
+    }
+
+    /**
+     * Limits the scan to the URNs under the given prefix, like "urn:global_sku:score:en_gb"
+     */
+    public URNRepositoryScanner withPrefix(URN prefix) {
+        this.start = base.resolve(prefix.toPath().substring(1));
+        return this;
+    }
+
+    /**
+     * Limits the scan to the URNs having the given folder as one of their sections, like "urn:flix_sku:latest:a"
+     * for {@link RepoValue#latest}
+     */
+    public URNRepositoryScanner withFolder(RepoValue folder) {
+        this.folder = folder.name().toLowerCase();
+        return this;
+    }
+
+    /**
+     * @param parallelism number of worker threads; defaults to the number of processors
+     */
+    public URNRepositoryScanner withParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param queueCapacity number of URNs the iterator buffers before workers have to wait
+     */
+    public URNRepositoryScanner withQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Scans the repository and passes every URN to the callback. Blocks until the scan is over.
+     *
+     * @param callback receiving URNs from the worker threads
+     */
+    public void scan(Callback callback) {
+        resetCounts();
+        if (!Files.isDirectory(start)) {
+            logger.debug("Folder [" + start + "] to scan is not found");
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ScanTask(start, callback));
+        } finally {
+            pool.shutdown();
+        }
+        logger.debug("Folder [" + start + "] is scanned; " + scannedCount.get() + " URNs found, " + skippedCount.get() + " skipped");
+    }
+
+    /**
+     * Starts the scan in background and returns an iterator over the URNs found. The iterator should be closed if it
+     * is not consumed till the end, so that the workers stop.
+     *
+     * @return iterator of URNs in no particular order
+     */
+    public ScanIterator iterator() {
+        resetCounts();
+        ScanIterator iterator = new ScanIterator(queueCapacity);
+        if (!Files.isDirectory(start)) {
+            logger.debug("Folder [" + start + "] to scan is not found");
+            iterator.finish();
+            return iterator;
+        }
+        iterator.start(start);
+        return iterator;
+    }
+
+    /**
+     * @return number of URNs found so far by the last scan
+     */
+    public long getScannedCount() {
+        return scannedCount.get();
+    }
+
+    /**
+     * @return number of files and folders skipped so far by the last scan due to errors
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * Counts are kept per scan; starting a scan while another one of the same scanner is running mixes their counts
+     */
+    private void resetCounts() {
+        scannedCount.set(0);
+        skippedCount.set(0);
+    }
+
+    /**
+     * @param path any file or folder
+     * @return true if its name starts with a dot, like ".snapshots" or ".file123.tmp"
+     */
+    static boolean isHidden(Path path) {
+        Path name = path.getFileName();
+        return name != null && name.toString().startsWith(".");
+    }
+
+    private boolean accept(URN urn) {
+        return folder == null || urn.getType().equals(folder) || urn.getValues().contains(folder);
+    }
+
+    /**
+     * Lists a folder; emits its files and forks a task for every subfolder
+     */
+    private class ScanTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final Callback callback;
+
+        ScanTask(Path dir, Callback callback) {
+            this.dir = dir;
+            this.callback = callback;
+        }
+
+        @Override
+        protected void compute() {
+            List<ScanTask> subtasks = new ArrayList<ScanTask>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path path : stream) {
+                    if (isHidden(path)) {
+                        continue;
+                    }
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        skippedCount.incrementAndGet();
+                        logger.debug("Unable to scan path [" + path + "] due to errors", e);
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        ScanTask subtask = new ScanTask(path, callback);
+                        subtask.fork();
+                        subtasks.add(subtask);
+                    } else if (attributes.isRegularFile()) {
+                        emit(path);
+                    }
+                }
+            } catch (IOException e) {
+                skippedCount.incrementAndGet();
+                logger.debug("Unable to list directory [" + dir + "] due to errors", e);
+            }
+            for (ScanTask subtask : subtasks) {
+                subtask.join();
+            }
+        }
+
+        private void emit(Path path) {
+            URN urn;
+            try {
+                urn = new URNImpl(base, path);
+            } catch (URNCreationException e) {
+                skippedCount.incrementAndGet();
+                logger.debug("File [" + path + "] cannot be converted to URN", e);
+                return;
+            }
+            if (accept(urn)) {
+                scannedCount.incrementAndGet();
+                callback.onURN(urn);
+            }
+        }
+    }
+
+    /**
+     * Iterator over the URNs of a running scan. Workers wait while its queue is full.
+     */
+    public class ScanIterator implements Iterator<URN>, Closeable {
+
+        private final BlockingQueue<URN> queue;
+        private volatile boolean finished;
+        private volatile boolean closed;
+        private ForkJoinPool pool;
+        private URN next;
+
+        ScanIterator(int capacity) {
+            queue = new ArrayBlockingQueue<URN>(capacity);
+        }
+
+        void start(final Path dir) {
+            pool = new ForkJoinPool(parallelism);
+            final Callback callback = new Callback() {
+                @Override
+                public void onURN(URN urn) {
+                    try {
+                        while (!closed && !queue.offer(urn, 100, TimeUnit.MILLISECONDS)) {
+                            // wait for the consumer
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        closed = true;
+                    }
+                }
+            };
+            pool.execute(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    try {
+                        new ScanTask(dir, callback).invoke();
+                    } finally {
+                        finish();
+                    }
+                }
+            });
+        }
+
+        void finish() {
+            finished = true;
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !closed) {
+                if (finished) {
+                    next = queue.poll();
+                    return next != null;
+                }
+                try {
+                    next = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public URN next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            URN current = next;
+            next = null;
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("URNs cannot be removed from the repository through the iterator");
+        }
+
+        /**
+         * Stops the scan and drops the URNs which are not consumed yet
+         */
+        @Override
+        public void close() {
+            closed = true;
+            next = null;
+            queue.clear();
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+}
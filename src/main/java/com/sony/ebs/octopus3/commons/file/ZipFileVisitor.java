@@ -16,10 +16,13 @@ public class ZipFileVisitor extends SimpleFileVisitor<Path> {
     FileSystem fileSystem;
     FileOperationResult result;
     Path fileOrFolderToZip;
+    Path root;
 
     ZipFileVisitor(Path zipFilePath, FileOperationResult result, Path fileOrFolderToZip) throws IOException {
         this.result = result;
         this.fileOrFolderToZip = fileOrFolderToZip;
+        //Default file behavior is to include file in zip; default folder behavior is not to include folder in zip
+        this.root = Files.isRegularFile(fileOrFolderToZip) ? fileOrFolderToZip.getParent() : fileOrFolderToZip;
 
         Map<String, String> env = new HashMap<String, String>();
         // check if file exists
@@ -32,9 +35,6 @@ public class ZipFileVisitor extends SimpleFileVisitor<Path> {
 
     @Override
     public FileVisitResult visitFile(Path fileToZip, BasicFileAttributes attrs) throws IOException {
-        //Default file behavior is to include file in zip; default folder behavior is not to include folder in zip
-        Path root = Files.isRegularFile(fileOrFolderToZip) ? fileOrFolderToZip.getParent() : fileOrFolderToZip;
-
         Path locationInZip = fileSystem.getPath(root.relativize(fileToZip).toString());
 
         //Create folder structure in zip file system
@@ -0,0 +1,244 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a zip archive sequentially from entries whose data is already compressed, so entries can be deflated in
+ * parallel and written in order. Sizes and CRC of every entry are known before it is written, so local headers do not
+ * need data descriptors. ZIP64 records are written only when sizes, offsets or the number of entries need them.
+ * <p/>
+ * Data of an entry is either in memory or in a file, which is transferred to the archive without copying into the JVM.
+ */
+class ZipStreamWriter implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int UTF_8_FLAG = 0x0800;
+    private static final int VERSION = 20;
+    private static final int ZIP64_VERSION = 45;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final FileChannel channel;
+    private final List<Entry> written = new ArrayList<Entry>();
+    private long position;
+
+    ZipStreamWriter(Path zipFilePath) throws IOException {
+        channel = FileChannel.open(zipFilePath, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes local header and data of the entry
+     */
+    void write(Entry entry) throws IOException {
+        entry.offset = position;
+        boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+
+        ByteBuffer header = buffer(30 + entry.name.length + (zip64 ? 20 : 0));
+        header.putInt(LOCAL_HEADER);
+        header.putShort((short) (zip64 ? ZIP64_VERSION : VERSION));
+        header.putShort((short) UTF_8_FLAG);
+        header.putShort((short) entry.method);
+        header.putInt((int) entry.dosTime);
+        header.putInt((int) entry.crc);
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.compressedSize));
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.size));
+        header.putShort((short) entry.name.length);
+        header.putShort((short) (zip64 ? 20 : 0));
+        header.put(entry.name);
+        if (zip64) {
+            header.putShort((short) ZIP64_EXTRA);
+            header.putShort((short) 16);
+            header.putLong(entry.size);
+            header.putLong(entry.compressedSize);
+        }
+        writeFully(header);
+
+        if (entry.data != null) {
+            writeFully(ByteBuffer.wrap(entry.data, 0, (int) entry.compressedSize));
+        } else if (entry.dataFile != null) {
+            try (FileChannel in = FileChannel.open(entry.dataFile, StandardOpenOption.READ)) {
+                long transferred = 0;
+                while (transferred < entry.compressedSize) {
+                    long count = in.transferTo(transferred, entry.compressedSize - transferred, channel);
+                    if (count <= 0) {
+                        throw new IOException("File [" + entry.dataFile + "] is changed while zipping");
+                    }
+                    transferred += count;
+                }
+            }
+        }
+        position += header.capacity() + entry.compressedSize;
+        channel.position(position);
+        written.add(entry);
+    }
+
+    /**
+     * Writes central directory and closes the archive
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            long start = position;
+            for (Entry entry : written) {
+                writeCentralHeader(entry);
+            }
+            writeEnd(start, position - start);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Closes the archive without completing it, like after a failure
+     */
+    void abort() throws IOException {
+        channel.close();
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException {
+        boolean sizes64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+        boolean offset64 = entry.offset >= ZIP64_MAGIC;
+        int extra = (sizes64 ? 16 : 0) + (offset64 ? 8 : 0);
+
+        ByteBuffer header = buffer(46 + entry.name.length + (extra > 0 ? 4 + extra : 0));
+        header.putInt(CENTRAL_HEADER);
+        header.putShort((short) (extra > 0 ? ZIP64_VERSION : VERSION));
+        header.putShort((short) (extra > 0 ? ZIP64_VERSION : VERSION));
+        header.putShort((short) UTF_8_FLAG);
+        header.putShort((short) entry.method);
+        header.putInt((int) entry.dosTime);
+        header.putInt((int) entry.crc);
+        header.putInt((int) (sizes64 ? ZIP64_MAGIC : entry.compressedSize));
+        header.putInt((int) (sizes64 ? ZIP64_MAGIC : entry.size));
+        header.putShort((short) entry.name.length);
+        header.putShort((short) (extra > 0 ? 4 + extra : 0));
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        // MS-DOS directory attribute
+        header.putInt(entry.directory ? 0x10 : 0);
+        header.putInt((int) (offset64 ? ZIP64_MAGIC : entry.offset));
+        header.put(entry.name);
+        if (extra > 0) {
+            header.putShort((short) ZIP64_EXTRA);
+            header.putShort((short) extra);
+            if (sizes64) {
+                header.putLong(entry.size);
+                header.putLong(entry.compressedSize);
+            }
+            if (offset64) {
+                header.putLong(entry.offset);
+            }
+        }
+        writeFully(header);
+        position += header.capacity();
+    }
+
+    private void writeEnd(long start, long size) throws IOException {
+        int count = written.size();
+        boolean zip64 = count >= 0xFFFF || start >= ZIP64_MAGIC || size >= ZIP64_MAGIC;
+        ByteBuffer end = buffer((zip64 ? 56 + 20 : 0) + 22);
+        if (zip64) {
+            long recordOffset = position;
+            end.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY);
+            end.putLong(44);
+            end.putShort((short) ZIP64_VERSION);
+            end.putShort((short) ZIP64_VERSION);
+            end.putInt(0);
+            end.putInt(0);
+            end.putLong(count);
+            end.putLong(count);
+            end.putLong(size);
+            end.putLong(start);
+
+            end.putInt(ZIP64_LOCATOR);
+            end.putInt(0);
+            end.putLong(recordOffset);
+            end.putInt(1);
+        }
+        end.putInt(END_OF_CENTRAL_DIRECTORY);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) (zip64 ? 0xFFFF : count));
+        end.putShort((short) (zip64 ? 0xFFFF : count));
+        end.putInt((int) (zip64 ? ZIP64_MAGIC : size));
+        end.putInt((int) (zip64 ? ZIP64_MAGIC : start));
+        end.putShort((short) 0);
+        writeFully(end);
+        position += end.capacity();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        if (buffer.position() > 0) {
+            buffer.flip();
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @param time in milliseconds
+     * @return time in MS-DOS format used by zip headers
+     */
+    static long dosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    /**
+     * An entry of the archive with its compressed data
+     */
+    static class Entry {
+        final byte[] name;
+        final boolean directory;
+        int method = ZipEntry.STORED;
+        long dosTime;
+        long crc;
+        long size;
+        long compressedSize;
+        /**
+         * compressed data in memory, if it is not in {@link #dataFile}
+         */
+        byte[] data;
+        Path dataFile;
+        long offset;
+
+        Entry(String name, boolean directory) {
+            this.name = name.getBytes(UTF_8);
+            this.directory = directory;
+        }
+    }
+}
@@ -20,10 +20,7 @@ public class ProcessIdImpl implements ProcessId {
     }
 
     public ProcessIdImpl(String processId) {
-        this();
-        if (StringUtils.isNotEmpty(processId)) {
-            this.processId = processId;
-        }
+        this.processId = StringUtils.isNotEmpty(processId) ? processId : UUID.randomUUID().toString();
     }
 
     @Override
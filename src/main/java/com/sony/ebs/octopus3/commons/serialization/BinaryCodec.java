@@ -0,0 +1,341 @@
+package com.sony.ebs.octopus3.commons.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.sony.ebs.octopus3.commons.flows.Delta;
+import com.sony.ebs.octopus3.commons.flows.FlowTypeEnum;
+import com.sony.ebs.octopus3.commons.flows.RepoValue;
+import com.sony.ebs.octopus3.commons.flows.ServiceTypeEnum;
+import com.sony.ebs.octopus3.commons.process.ProcessId;
+import com.sony.ebs.octopus3.commons.process.ProcessIdImpl;
+import com.sony.ebs.octopus3.commons.urn.URN;
+import com.sony.ebs.octopus3.commons.urn.URNCreationException;
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Compact binary format for URN, ProcessId and Delta. It is used both by Hazelcast serializers and standalone as
+ * byte[] or ByteBuffer codec.
+ * <p/>
+ * Format rules:
+ * 1) Lengths and counts are written as variable length integers, so small values take a single byte
+ * 2) Strings are written as length prefixed UTF-8; length 0 means null, length n+1 means n bytes
+ * 3) URNs are written as the count of sections followed by length prefixed sections, type being the first one.
+ * Sections of a URN are always ASCII, so chars are written as bytes without any encoding.
+ * 4) Enums are written as a single byte ordinal; -1 means null. Ordinals depend on the declaration order of the enums,
+ * so new constants should always be appended.
+ * 5) Delta status is written as a string when it is a string. Other objects are written by Hazelcast when the stream
+ * belongs to Hazelcast, and by Java serialization otherwise.
+ */
+public class BinaryCodec {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int STATUS_NULL = 0;
+    private static final int STATUS_STRING = 1;
+    private static final int STATUS_OBJECT = 2;
+
+    private BinaryCodec() throws InstantiationException {
+        throw new InstantiationException("Utility classes should not be instantiated");
+    }
+
+    // ============================
+    // URN
+    // ============================
+
+    public static void writeURN(DataOutput out, URN urn) throws IOException {
+        String urnStr = urn.toString();
+        int start = URN.URN_PREFIX.length() + 1;
+        int sections = 1;
+        for (int i = start; i < urnStr.length(); i++) {
+            if (urnStr.charAt(i) == ':') {
+                sections++;
+            }
+        }
+        writeVarInt(out, sections);
+        for (int i = start; i <= urnStr.length(); i++) {
+            if (i == urnStr.length() || urnStr.charAt(i) == ':') {
+                writeVarInt(out, i - start);
+                for (int j = start; j < i; j++) {
+                    out.writeByte(urnStr.charAt(j));
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    public static URN readURN(DataInput in) throws IOException {
+        int sections = readVarInt(in);
+        StringBuilder builder = new StringBuilder(32).append(URN.URN_PREFIX);
+        for (int i = 0; i < sections; i++) {
+            int length = readVarInt(in);
+            builder.append(URN.URN_DELIMITER);
+            for (int j = 0; j < length; j++) {
+                builder.append((char) (in.readByte() & 0xFF));
+            }
+        }
+        try {
+            return new URNImpl(builder.toString());
+        } catch (URNCreationException e) {
+            throw new IOException("Unable to read URN from stream", e);
+        }
+    }
+
+    public static byte[] toBytes(URN urn) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        writeURN(new DataOutputStream(bytes), urn);
+        return bytes.toByteArray();
+    }
+
+    public static URN toURN(byte[] bytes) throws IOException {
+        return readURN(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Writes the URN at the current position of the buffer
+     *
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough space
+     */
+    public static void write(ByteBuffer buffer, URN urn) throws IOException {
+        writeURN(new DataOutputStream(new ByteBufferOutputStream(buffer)), urn);
+    }
+
+    public static URN readURN(ByteBuffer buffer) throws IOException {
+        return readURN(new DataInputStream(new ByteBufferInputStream(buffer)));
+    }
+
+    // ============================
+    // PROCESS ID
+    // ============================
+
+    public static void writeProcessId(DataOutput out, ProcessId processId) throws IOException {
+        writeString(out, processId.getId());
+    }
+
+    public static ProcessId readProcessId(DataInput in) throws IOException {
+        return new ProcessIdImpl(readString(in));
+    }
+
+    public static byte[] toBytes(ProcessId processId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        writeProcessId(new DataOutputStream(bytes), processId);
+        return bytes.toByteArray();
+    }
+
+    public static ProcessId toProcessId(byte[] bytes) throws IOException {
+        return readProcessId(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    public static void write(ByteBuffer buffer, ProcessId processId) throws IOException {
+        writeProcessId(new DataOutputStream(new ByteBufferOutputStream(buffer)), processId);
+    }
+
+    public static ProcessId readProcessId(ByteBuffer buffer) throws IOException {
+        return readProcessId(new DataInputStream(new ByteBufferInputStream(buffer)));
+    }
+
+    // ============================
+    // DELTA
+    // ============================
+
+    public static void writeDelta(DataOutput out, Delta delta) throws IOException {
+        writeString(out, delta.getProcessId() != null ? delta.getProcessId().getId() : null);
+        writeEnum(out, delta.getFlow());
+        writeEnum(out, delta.getService());
+        writeEnum(out, delta.getType());
+        writeString(out, delta.getPublication());
+        writeString(out, delta.getLocale());
+        writeStatus(out, delta.getStatus());
+        out.writeBoolean(delta.isUpload());
+        writeString(out, delta.getSdate());
+        writeString(out, delta.getEdate());
+    }
+
+    public static Delta readDelta(DataInput in) throws IOException {
+        Delta delta = new Delta();
+        String processId = readString(in);
+        delta.setProcessId(processId != null ? new ProcessIdImpl(processId) : null);
+        delta.setFlow(readEnum(in, FlowTypeEnum.values()));
+        delta.setService(readEnum(in, ServiceTypeEnum.values()));
+        delta.setType(readEnum(in, RepoValue.values()));
+        delta.setPublication(readString(in));
+        delta.setLocale(readString(in));
+        delta.setStatus(readStatus(in));
+        delta.setUpload(in.readBoolean());
+        delta.setSdate(readString(in));
+        delta.setEdate(readString(in));
+        return delta;
+    }
+
+    public static byte[] toBytes(Delta delta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        writeDelta(new DataOutputStream(bytes), delta);
+        return bytes.toByteArray();
+    }
+
+    public static Delta toDelta(byte[] bytes) throws IOException {
+        return readDelta(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    public static void write(ByteBuffer buffer, Delta delta) throws IOException {
+        writeDelta(new DataOutputStream(new ByteBufferOutputStream(buffer)), delta);
+    }
+
+    public static Delta readDelta(ByteBuffer buffer) throws IOException {
+        return readDelta(new DataInputStream(new ByteBufferInputStream(buffer)));
+    }
+
+    // ============================
+    // PRIMITIVES
+    // ============================
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value != null ? value.ordinal() : -1);
+    }
+
+    static <E extends Enum<E>> E readEnum(DataInput in, E[] values) throws IOException {
+        byte ordinal = in.readByte();
+        if (ordinal == -1) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Unknown ordinal [" + ordinal + "] for enum values of size [" + values.length + "]");
+        }
+        return values[ordinal];
+    }
+
+    private static void writeStatus(DataOutput out, Object status) throws IOException {
+        if (status == null) {
+            out.writeByte(STATUS_NULL);
+        } else if (status instanceof String) {
+            out.writeByte(STATUS_STRING);
+            writeString(out, (String) status);
+        } else if (out instanceof ObjectDataOutput) {
+            out.writeByte(STATUS_OBJECT);
+            ((ObjectDataOutput) out).writeObject(status);
+        } else {
+            out.writeByte(STATUS_OBJECT);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream stream = new ObjectOutputStream(bytes);
+            stream.writeObject(status);
+            stream.close();
+            writeVarInt(out, bytes.size());
+            out.write(bytes.toByteArray());
+        }
+    }
+
+    private static Object readStatus(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        if (tag == STATUS_NULL) {
+            return null;
+        } else if (tag == STATUS_STRING) {
+            return readString(in);
+        } else if (tag != STATUS_OBJECT) {
+            throw new IOException("Unknown status tag [" + tag + "]");
+        } else if (in instanceof ObjectDataInput) {
+            return ((ObjectDataInput) in).readObject();
+        }
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return stream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to read status of delta", e);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Writes to the buffer starting from its current position
+     */
+    private static class ByteBufferOutputStream extends OutputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.put(bytes, offset, length);
+        }
+    }
+
+    /**
+     * Reads from the buffer starting from its current position
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
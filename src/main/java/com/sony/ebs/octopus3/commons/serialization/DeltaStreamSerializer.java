@@ -0,0 +1,35 @@
+package com.sony.ebs.octopus3.commons.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+import com.sony.ebs.octopus3.commons.flows.Delta;
+
+import java.io.IOException;
+
+/**
+ * Hazelcast serializer writing the delta in the compact format of {@link BinaryCodec}
+ */
+public class DeltaStreamSerializer implements StreamSerializer<Delta> {
+
+    public static final int TYPE_ID = 3003;
+
+    @Override
+    public void write(ObjectDataOutput out, Delta object) throws IOException {
+        BinaryCodec.writeDelta(out, object);
+    }
+
+    @Override
+    public Delta read(ObjectDataInput in) throws IOException {
+        return BinaryCodec.readDelta(in);
+    }
+
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,43 @@
+package com.sony.ebs.octopus3.commons.serialization;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.sony.ebs.octopus3.commons.flows.Delta;
+import com.sony.ebs.octopus3.commons.process.ProcessIdImpl;
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+import com.sony.ebs.octopus3.commons.urn.URNPartitionKey;
+
+/**
+ * Registers compact serializers of commons classes to Hazelcast, so maps and queues holding them do not fall back to
+ * Java serialization. It should be called for both members and clients, like:
+ * <pre>
+ * Config config = new Config();
+ * HazelcastSerializers.register(config.getSerializationConfig());
+ * </pre>
+ */
+public class HazelcastSerializers {
+
+    private HazelcastSerializers() throws InstantiationException {
+        throw new InstantiationException("Utility classes should not be instantiated");
+    }
+
+    /**
+     * @param config serialization config of a Hazelcast member or client
+     * @return the same config
+     */
+    public static SerializationConfig register(SerializationConfig config) {
+        config.addSerializerConfig(new SerializerConfig()
+                .setTypeClass(URNImpl.class)
+                .setImplementation(new URNStreamSerializer()));
+        config.addSerializerConfig(new SerializerConfig()
+                .setTypeClass(ProcessIdImpl.class)
+                .setImplementation(new ProcessIdStreamSerializer()));
+        config.addSerializerConfig(new SerializerConfig()
+                .setTypeClass(Delta.class)
+                .setImplementation(new DeltaStreamSerializer()));
+        config.addSerializerConfig(new SerializerConfig()
+                .setTypeClass(URNPartitionKey.class)
+                .setImplementation(new URNPartitionKeyStreamSerializer()));
+        return config;
+    }
+}
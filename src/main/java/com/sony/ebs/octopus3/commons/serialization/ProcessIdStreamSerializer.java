@@ -0,0 +1,35 @@
+package com.sony.ebs.octopus3.commons.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+import com.sony.ebs.octopus3.commons.process.ProcessId;
+
+import java.io.IOException;
+
+/**
+ * Hazelcast serializer writing the process id in the compact format of {@link BinaryCodec}
+ */
+public class ProcessIdStreamSerializer implements StreamSerializer<ProcessId> {
+
+    public static final int TYPE_ID = 3002;
+
+    @Override
+    public void write(ObjectDataOutput out, ProcessId object) throws IOException {
+        BinaryCodec.writeProcessId(out, object);
+    }
+
+    @Override
+    public ProcessId read(ObjectDataInput in) throws IOException {
+        return BinaryCodec.readProcessId(in);
+    }
+
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,37 @@
+package com.sony.ebs.octopus3.commons.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+import com.sony.ebs.octopus3.commons.urn.URNPartitionKey;
+
+import java.io.IOException;
+
+/**
+ * Hazelcast serializer writing the URN of the key in the compact format of {@link BinaryCodec}, followed by its
+ * partition key
+ */
+public class URNPartitionKeyStreamSerializer implements StreamSerializer<URNPartitionKey> {
+
+    public static final int TYPE_ID = 3004;
+
+    @Override
+    public void write(ObjectDataOutput out, URNPartitionKey object) throws IOException {
+        BinaryCodec.writeURN(out, object.getURN());
+        BinaryCodec.writeString(out, object.getPartitionKey());
+    }
+
+    @Override
+    public URNPartitionKey read(ObjectDataInput in) throws IOException {
+        return new URNPartitionKey(BinaryCodec.readURN(in), BinaryCodec.readString(in));
+    }
+
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
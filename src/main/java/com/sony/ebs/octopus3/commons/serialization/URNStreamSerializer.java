@@ -0,0 +1,35 @@
+package com.sony.ebs.octopus3.commons.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+import com.sony.ebs.octopus3.commons.urn.URN;
+
+import java.io.IOException;
+
+/**
+ * Hazelcast serializer writing the URN in the compact format of {@link BinaryCodec}
+ */
+public class URNStreamSerializer implements StreamSerializer<URN> {
+
+    public static final int TYPE_ID = 3001;
+
+    @Override
+    public void write(ObjectDataOutput out, URN object) throws IOException {
+        BinaryCodec.writeURN(out, object);
+    }
+
+    @Override
+    public URN read(ObjectDataInput in) throws IOException {
+        return BinaryCodec.readURN(in);
+    }
+
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
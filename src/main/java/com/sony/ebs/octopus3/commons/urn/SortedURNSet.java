@@ -0,0 +1,309 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable set of URNs kept in a sorted array, in the order of {@link URNComparator}. It is built in bulk and is meant
+ * for comparing large SKU lists, like the ones of two publications or of latest and previous snapshots.
+ * <p/>
+ * Lookups are binary searches. Since descendants of a URN are next to each other in the order, all URNs under a
+ * prefix are a range of the array and {@link #subSet(URN)} returns that range as a view without copying. Union,
+ * intersection and difference of two sets are single merge passes over both arrays.
+ * <p/>
+ * Building the set sorts the URNs with multikey quicksort, a radix style sort comparing the strings one char at a time
+ * without starting from the beginning for every comparison.
+ */
+public class SortedURNSet extends AbstractSet<URN> {
+
+    private static final SortedURNSet EMPTY = new SortedURNSet(new URN[0], new String[0], 0, 0);
+
+    private static final int INSERTION_SORT_THRESHOLD = 12;
+
+    private final URN[] urns;
+    private final String[] keys;
+    private final int from;
+    private final int to;
+
+    private SortedURNSet(URN[] urns, String[] keys, int from, int to) {
+        this.urns = urns;
+        this.keys = keys;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Sorts the URNs and removes duplicates
+     *
+     * @param urns in any order
+     * @return sorted set
+     */
+    public static SortedURNSet of(Collection<? extends URN> urns) {
+        if (urns.isEmpty()) {
+            return EMPTY;
+        }
+        URN[] array = urns.toArray(new URN[urns.size()]);
+        String[] keys = new String[array.length];
+        for (int i = 0; i < array.length; i++) {
+            keys[i] = array[i].toString();
+        }
+        sort(array, keys, 0, array.length, 0);
+
+        int size = 1;
+        for (int i = 1; i < array.length; i++) {
+            if (!keys[i].equals(keys[size - 1])) {
+                array[size] = array[i];
+                keys[size] = keys[i];
+                size++;
+            }
+        }
+        return new SortedURNSet(array, keys, 0, size);
+    }
+
+    public static SortedURNSet empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof URN && indexOf((URN) o) >= 0;
+    }
+
+    /**
+     * @param urn to look for
+     * @return index of the URN in this set; negative if it is not in the set
+     */
+    public int indexOf(URN urn) {
+        int index = search(urn.toString());
+        return index >= 0 ? index - from : -1;
+    }
+
+    /**
+     * @param index of the URN in order
+     * @return URN at the index
+     */
+    public URN get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index [" + index + "] is out of set of size [" + size() + "]");
+        }
+        return urns[from + index];
+    }
+
+    public URN first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return urns[from];
+    }
+
+    public URN last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return urns[to - 1];
+    }
+
+    /**
+     * Range of the URNs which are equal to or under the given prefix, like all SKUs of "urn:global_sku:score:en_gb".
+     * The returned set is a view sharing the array of this set.
+     *
+     * @param prefix URN
+     * @return URNs starting with the prefix
+     */
+    public SortedURNSet subSet(URN prefix) {
+        String key = prefix.toString();
+        int start = search(key);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        int low = start;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (isUnder(keys[middle], key)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return new SortedURNSet(urns, keys, start, low);
+    }
+
+    /**
+     * @return URNs in either of the sets
+     */
+    public SortedURNSet union(SortedURNSet other) {
+        return merge(other, true, true, true);
+    }
+
+    /**
+     * @return URNs in both of the sets
+     */
+    public SortedURNSet intersection(SortedURNSet other) {
+        return merge(other, false, true, false);
+    }
+
+    /**
+     * @return URNs in this set but not in the other one, like SKUs removed from the latest snapshot
+     */
+    public SortedURNSet difference(SortedURNSet other) {
+        return merge(other, true, false, false);
+    }
+
+    @Override
+    public Iterator<URN> iterator() {
+        return new Iterator<URN>() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public URN next() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+                return urns[index++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Sorted URN set is immutable");
+            }
+        };
+    }
+
+    /**
+     * @return index in the backing array if found; otherwise -(insertion point) - 1
+     */
+    private int search(String key) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int result = URNComparator.compare(keys[middle], key);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static boolean isUnder(String urnStr, String prefix) {
+        return urnStr.startsWith(prefix) && (urnStr.length() == prefix.length() || urnStr.charAt(prefix.length()) == ':');
+    }
+
+    /**
+     * Walks both sets once and keeps URNs according to where they are found
+     *
+     * @param onlyThis  keep URNs found only in this set
+     * @param both      keep URNs found in both sets
+     * @param onlyOther keep URNs found only in the other set
+     */
+    private SortedURNSet merge(SortedURNSet other, boolean onlyThis, boolean both, boolean onlyOther) {
+        int capacity = (onlyThis ? size() : 0) + (onlyOther ? other.size() : 0) + (both && !onlyThis && !onlyOther ? Math.min(size(), other.size()) : 0);
+        URN[] mergedURNs = new URN[capacity];
+        String[] mergedKeys = new String[capacity];
+        int size = 0;
+
+        int i = from;
+        int j = other.from;
+        while (i < to || j < other.to) {
+            int result = i >= to ? 1 : j >= other.to ? -1 : URNComparator.compare(keys[i], other.keys[j]);
+            if (result < 0) {
+                if (onlyThis) {
+                    mergedURNs[size] = urns[i];
+                    mergedKeys[size++] = keys[i];
+                }
+                i++;
+            } else if (result > 0) {
+                if (onlyOther) {
+                    mergedURNs[size] = other.urns[j];
+                    mergedKeys[size++] = other.keys[j];
+                }
+                j++;
+            } else {
+                if (both) {
+                    mergedURNs[size] = urns[i];
+                    mergedKeys[size++] = keys[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        return size == 0 ? EMPTY : new SortedURNSet(mergedURNs, mergedKeys, 0, size);
+    }
+
+    /**
+     * Multikey quicksort on the range [from, to), with all keys sharing the first "depth" chars
+     */
+    private static void sort(URN[] urns, String[] keys, int from, int to, int depth) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int pivot = URNComparator.rank(keys[(from + to) >>> 1], depth);
+            int less = from;
+            int greater = to - 1;
+            int i = from;
+            while (i <= greater) {
+                int rank = URNComparator.rank(keys[i], depth);
+                if (rank < pivot) {
+                    swap(urns, keys, less++, i++);
+                } else if (rank > pivot) {
+                    swap(urns, keys, i, greater--);
+                } else {
+                    i++;
+                }
+            }
+            sort(urns, keys, from, less, depth);
+            sort(urns, keys, greater + 1, to, depth);
+            if (pivot < 0) {
+                return;
+            }
+            from = less;
+            to = greater + 1;
+            depth++;
+        }
+        insertionSort(urns, keys, from, to, depth);
+    }
+
+    private static void insertionSort(URN[] urns, String[] keys, int from, int to, int depth) {
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compareFrom(keys[j - 1], keys[j], depth) > 0; j--) {
+                swap(urns, keys, j, j - 1);
+            }
+        }
+    }
+
+    private static int compareFrom(String left, String right, int depth) {
+        int length = Math.max(left.length(), right.length());
+        for (int i = depth; i <= length; i++) {
+            int l = URNComparator.rank(left, i);
+            int r = URNComparator.rank(right, i);
+            if (l != r || l < 0) {
+                return l - r;
+            }
+        }
+        return 0;
+    }
+
+    private static void swap(URN[] urns, String[] keys, int i, int j) {
+        URN urn = urns[i];
+        urns[i] = urns[j];
+        urns[j] = urn;
+        String key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+    }
+}
@@ -1,6 +1,7 @@
 package com.sony.ebs.octopus3.commons.urn;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -51,5 +52,84 @@ public interface URN extends Serializable {
      */
     public URN getParent() throws URNCreationException;
 
+    /**
+     * Creates the URN one level below this one. Only the new value is validated by {@link URNImpl}; other
+     * implementations validate the whole URN.
+     *
+     * @param value to append, like "c" for "urn:a:b:c"; it should be a single section without delimiters
+     * @return URN of the child
+     * @throws URNCreationException thrown if the value is invalid
+     */
+    public default URN child(String value) throws URNCreationException {
+        if (value == null || value.contains(URN_DELIMITER)) {
+            throw new URNCreationException("Value [" + value + "] cannot be appended to URN [" + this + "] as a single section");
+        }
+        List<String> values = new ArrayList<String>(getValues());
+        values.add(value);
+        return new URNImpl(getType(), values);
+    }
+
+    /**
+     * Iterates the ancestors starting from the parent up to the URN with a single value. A URN with a single value
+     * does not have any ancestors.
+     *
+     * @return ancestors from the nearest to the furthest
+     */
+    public default Iterable<URN> ancestors() {
+        List<String> values = getValues();
+        List<URN> ancestors = new ArrayList<URN>();
+        for (int size = values.size() - 1; size >= 1; size--) {
+            try {
+                ancestors.add(new URNImpl(getType(), values.subList(0, size)));
+            } catch (URNCreationException e) {
+                throw new IllegalStateException("Ancestor of URN [" + this + "] is invalid", e);
+            }
+        }
+        return ancestors;
+    }
+
+    /**
+     * Checks whether the given URN is under this one. A URN is not an ancestor of itself.
+     *
+     * @param urn to check
+     * @return true if "urn:a:b" is checked against "urn:a:b:c"
+     */
+    public default boolean isAncestorOf(URN urn) {
+        if (urn == null || !getType().equals(urn.getType())) {
+            return false;
+        }
+        List<String> values = getValues();
+        List<String> others = urn.getValues();
+        return others.size() > values.size() && others.subList(0, values.size()).equals(values);
+    }
+
+    /**
+     * Finds the longest URN which is shared by both URNs, like "urn:a:b" for "urn:a:b:c" and "urn:a:b:d"
+     *
+     * @param urn to compare
+     * @return common URN; null if the URNs do not share the type and the first value
+     */
+    public default URN commonPrefix(URN urn) {
+        if (urn == null || !getType().equals(urn.getType())) {
+            return null;
+        }
+        List<String> values = getValues();
+        List<String> others = urn.getValues();
+        int common = 0;
+        while (common < values.size() && common < others.size() && values.get(common).equals(others.get(common))) {
+            common++;
+        }
+        if (common == 0) {
+            return null;
+        }
+        if (common == values.size()) {
+            return this;
+        }
+        try {
+            return new URNImpl(getType(), values.subList(0, common));
+        } catch (URNCreationException e) {
+            throw new IllegalStateException("Common prefix of URN [" + this + "] is invalid", e);
+        }
+    }
 
 }
@@ -0,0 +1,346 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses URN strings in bulk, one URN per line, like the SKU lists of feed imports. Lines are split into chunks which
+ * are parsed in parallel and URNs are returned in the order of the lines.
+ * <p/>
+ * Invalid lines do not throw {@link URNCreationException}; they are collected with their line numbers and reasons.
+ * Blank lines are skipped. Line endings can be either "\n" or "\r\n".
+ * <p/>
+ * Files are memory-mapped and split at line boundaries. URN strings are always ASCII, so bytes are converted to
+ * chars directly; only invalid lines are decoded as UTF-8 for the report.
+ */
+public class URNBatchParser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int parallelism;
+    private final int chunkSize;
+
+    public URNBatchParser() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param parallelism number of worker threads
+     * @param chunkSize   number of lines parsed by a worker at a time when reading from a stream
+     */
+    public URNBatchParser(int parallelism, int chunkSize) {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Parallelism [" + parallelism + "] and chunk size [" + chunkSize + "] should be positive");
+        }
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parses a file by mapping it into memory
+     *
+     * @param file containing one URN per line
+     * @return URNs in order and the lines which cannot be parsed
+     * @throws IOException thrown if the file cannot be read
+     */
+    public Result parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                try (InputStream in = Channels.newInputStream(channel)) {
+                    return parse(in);
+                }
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            int chunks = size < 64 * 1024 ? 1 : parallelism * 4;
+            List<Callable<Result>> tasks = new ArrayList<Callable<Result>>(chunks);
+            int start = 0;
+            for (int i = 1; i <= chunks && start < size; i++) {
+                int end = i == chunks ? (int) size : lineEnd(buffer, (int) Math.max(start, size * i / chunks), (int) size);
+                if (end > start) {
+                    tasks.add(new BufferTask(buffer, start, end));
+                }
+                start = end;
+            }
+            return run(tasks);
+        }
+    }
+
+    /**
+     * Parses a stream which is read in chunks of lines as UTF-8. Chunks are parsed while the next ones are being read.
+     *
+     * @param in containing one URN per line
+     * @return URNs in order and the lines which cannot be parsed
+     * @throws IOException thrown if the stream cannot be read
+     */
+    public Result parse(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Result>> futures = new ArrayList<Future<Result>>();
+            List<String> lines = new ArrayList<String>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    futures.add(executor.submit(new LinesTask(lines)));
+                    lines = new ArrayList<String>(chunkSize);
+                }
+            }
+            if (!lines.isEmpty()) {
+                futures.add(executor.submit(new LinesTask(lines)));
+            }
+            return merge(futures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses the given lines
+     *
+     * @param lines URN strings
+     * @return URNs in order and the lines which cannot be parsed
+     */
+    public Result parse(List<String> lines) {
+        List<Callable<Result>> tasks = new ArrayList<Callable<Result>>();
+        for (int i = 0; i < lines.size(); i += chunkSize) {
+            tasks.add(new LinesTask(lines.subList(i, Math.min(lines.size(), i + chunkSize))));
+        }
+        try {
+            return run(tasks);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to parse lines", e);
+        }
+    }
+
+    private Result run(List<Callable<Result>> tasks) throws IOException {
+        if (tasks.size() == 1) {
+            try {
+                return tasks.get(0).call();
+            } catch (Exception e) {
+                throw new IOException("Unable to parse URNs", e);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, tasks.size())));
+        try {
+            return merge(executor.invokeAll(tasks));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Parsing of URNs is interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Joins results of the chunks in order. Line numbers of failures are shifted by the lines of the previous chunks.
+     */
+    private static Result merge(List<Future<Result>> futures) throws IOException {
+        Result result = new Result();
+        int lines = 0;
+        try {
+            for (Future<Result> future : futures) {
+                Result chunk = future.get();
+                result.urns.addAll(chunk.urns);
+                for (Failure failure : chunk.failures) {
+                    result.failures.add(new Failure(failure.lineNumber + lines, failure.line, failure.reason));
+                }
+                lines += chunk.lineCount;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Parsing of URNs is interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to parse URNs", e.getCause());
+        }
+        result.lineCount = lines;
+        return result;
+    }
+
+    private static int lineEnd(MappedByteBuffer buffer, int position, int limit) {
+        while (position < limit && buffer.get(position - 1) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Parses a single line and adds either the URN or the failure to the result
+     */
+    private static void parseLine(Result result, String line, int lineNumber) {
+        URNParser.Sections sections = URNParser.parse(line);
+        if (sections != null) {
+            result.urns.add(URNImpl.of(sections));
+        } else {
+            result.failures.add(new Failure(lineNumber, line, URNParser.explain(line)));
+        }
+    }
+
+    /**
+     * Parses lines of a mapped file between the given byte offsets
+     */
+    private static class BufferTask implements Callable<Result> {
+
+        private final MappedByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        BufferTask(MappedByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Result call() {
+            Result result = new Result();
+            char[] chars = new char[128];
+            int lineStart = start;
+            while (lineStart < end) {
+                int lineEnd = lineStart;
+                while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int length = lineEnd - lineStart;
+                if (length > 0 && buffer.get(lineEnd - 1) == '\r') {
+                    length--;
+                }
+                result.lineCount++;
+
+                if (length > 0) {
+                    if (length > chars.length) {
+                        chars = new char[Math.max(length, chars.length * 2)];
+                    }
+                    boolean ascii = true;
+                    for (int i = 0; i < length; i++) {
+                        byte b = buffer.get(lineStart + i);
+                        ascii &= b >= 0;
+                        chars[i] = (char) (b & 0xFF);
+                    }
+                    String line = new String(chars, 0, length);
+                    if (!ascii) {
+                        byte[] bytes = new byte[length];
+                        for (int i = 0; i < length; i++) {
+                            bytes[i] = buffer.get(lineStart + i);
+                        }
+                        line = new String(bytes, UTF_8);
+                    }
+                    if (!line.trim().isEmpty()) {
+                        parseLine(result, line, result.lineCount);
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Parses lines which are already read
+     */
+    private static class LinesTask implements Callable<Result> {
+
+        private final List<String> lines;
+
+        LinesTask(List<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public Result call() {
+            Result result = new Result();
+            for (String line : lines) {
+                result.lineCount++;
+                if (!line.trim().isEmpty()) {
+                    parseLine(result, line, result.lineCount);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * URNs parsed in the order of lines and failures of the invalid lines
+     */
+    public static class Result {
+
+        private final List<URN> urns = new ArrayList<URN>();
+        private final List<Failure> failures = new ArrayList<Failure>();
+        private int lineCount;
+
+        public List<URN> getURNs() {
+            return Collections.unmodifiableList(urns);
+        }
+
+        public List<Failure> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        public boolean hasFailures() {
+            return !failures.isEmpty();
+        }
+
+        /**
+         * @return number of lines read, including blank and invalid ones
+         */
+        public int getLineCount() {
+            return lineCount;
+        }
+    }
+
+    /**
+     * A line which cannot be parsed as URN
+     */
+    public static class Failure {
+
+        private final int lineNumber;
+        private final String line;
+        private final String reason;
+
+        Failure(int lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        /**
+         * @return line number starting from 1
+         */
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + " [" + line + "]: " + reason;
+        }
+    }
+}
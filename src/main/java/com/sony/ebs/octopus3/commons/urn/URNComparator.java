@@ -0,0 +1,56 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * Orders URNs section by section: first by type, then by values in order. A URN comes before its descendants and
+ * all descendants of a URN come right after it, so "urn:a:b", "urn:a:b:c", "urn:a:b0" is the order.
+ * <p/>
+ * The comparison is done on the URN strings, where the delimiter is treated as smaller than every other character,
+ * so comparing two URNs does not allocate anything.
+ */
+public final class URNComparator implements Comparator<URN>, Serializable {
+
+    public static final URNComparator INSTANCE = new URNComparator();
+
+    private static final long serialVersionUID = -2371054918237423476L;
+
+    private URNComparator() {
+    }
+
+    @Override
+    public int compare(URN left, URN right) {
+        return compare(left.toString(), right.toString());
+    }
+
+    /**
+     * Compares URN strings section by section
+     */
+    static int compare(String left, String right) {
+        int length = Math.min(left.length(), right.length());
+        for (int i = 0; i < length; i++) {
+            int l = rank(left, i);
+            int r = rank(right, i);
+            if (l != r) {
+                return l - r;
+            }
+        }
+        return left.length() - right.length();
+    }
+
+    /**
+     * @return rank of the char at the given index; -1 after the end of the string and 0 for the delimiter
+     */
+    static int rank(String urnStr, int index) {
+        if (index >= urnStr.length()) {
+            return -1;
+        }
+        char c = urnStr.charAt(index);
+        return c == ':' ? 0 : c;
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+}
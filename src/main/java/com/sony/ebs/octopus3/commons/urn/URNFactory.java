@@ -0,0 +1,199 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates canonical, shared URN instances. Created URNs are kept in a bounded cache, so parsing the same URN string
+ * again is only a hash lookup. Strings which differ only in case, like "URN:SKU:A" and "urn:sku:a", are resolved
+ * to the same instance, so equal URNs can often be compared by reference.
+ * <p/>
+ * The cache is split into segments, each of which is a synchronized LRU map. When a segment is full, its least
+ * recently used entry is evicted. Hit, miss and eviction counts are kept for monitoring; a case variant of a cached URN
+ * counts as a hit.
+ */
+public class URNFactory {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 100000;
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public URNFactory() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param maximumSize maximum number of URN strings kept in the cache
+     */
+    public URNFactory(int maximumSize) {
+        if (maximumSize < SEGMENT_COUNT) {
+            throw new IllegalArgumentException("Maximum size [" + maximumSize + "] cannot be less than " + SEGMENT_COUNT);
+        }
+        segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(maximumSize / SEGMENT_COUNT);
+        }
+    }
+
+    /**
+     * Returns the canonical URN for the given string
+     *
+     * @param urnStr string representation of the URN, like "urn:global_sku:score:en_gb"
+     * @return shared URN instance
+     * @throws URNCreationException thrown if the string is not a valid URN
+     */
+    public URN create(String urnStr) throws URNCreationException {
+        if (urnStr == null) {
+            throw new URNCreationException("Cannot validate the URN string because it is null");
+        }
+        URN urn = segmentFor(urnStr).get(urnStr);
+        if (urn != null) {
+            hitCount.incrementAndGet();
+            return urn;
+        }
+        urn = new URNImpl(urnStr);
+        String canonical = urn.toString();
+        if (!canonical.equals(urnStr)) {
+            URN existing = segmentFor(canonical).get(canonical);
+            if (existing != null) {
+                // case variant of a cached URN; only the alias is new
+                hitCount.incrementAndGet();
+                return segmentFor(urnStr).putIfAbsent(urnStr, existing);
+            }
+            urn = segmentFor(canonical).putIfAbsent(canonical, urn);
+        }
+        missCount.incrementAndGet();
+        return segmentFor(urnStr).putIfAbsent(urnStr, urn);
+    }
+
+    /**
+     * Returns the canonical URN for the given type and values
+     *
+     * @param type   type of the urn
+     * @param values values of the urn
+     * @return shared URN instance
+     * @throws URNCreationException thrown if type or values are missing or invalid
+     */
+    public URN create(String type, String... values) throws URNCreationException {
+        if (type == null || values == null || values.length == 0) {
+            throw new URNCreationException("Cannot validate the URN because type [" + type + "] or values [" + ArrayUtils.toString(values) + "] is null");
+        }
+        return create(URN.URN_PREFIX + URN.URN_DELIMITER + type + URN.URN_DELIMITER + StringUtils.join(values, URN.URN_DELIMITER));
+    }
+
+    /**
+     * Returns the canonical URN for a file in the repository
+     *
+     * @param base is the path of base folder, like "/home"
+     * @param path is the path of the file, like "/home/path/to/file"
+     * @return shared URN instance
+     * @throws URNCreationException thrown if paths are missing or cannot be converted to URN
+     */
+    public URN create(Path base, Path path) throws URNCreationException {
+        if (base == null || path == null) {
+            throw new URNCreationException("Cannot validate the URN because base path [" + base + "] or file path [" + path + "] is null");
+        }
+        return create(URNImpl.toURNString(base, path));
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return number of URN strings in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes all URNs from the cache. Statistics are not reset.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(getClass().getSimpleName())
+                .append("(size=").append(size())
+                .append(", hits=").append(getHitCount())
+                .append(", misses=").append(getMissCount())
+                .append(", evictions=").append(getEvictionCount())
+                .append(")").toString();
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * LRU map guarded by its own lock
+     */
+    private class Segment {
+
+        private final Map<String, URN> map;
+
+        Segment(final int capacity) {
+            map = new LinkedHashMap<String, URN>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, URN> eldest) {
+                    if (size() > capacity) {
+                        evictionCount.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized URN get(String key) {
+            return map.get(key);
+        }
+
+        synchronized URN putIfAbsent(String key, URN urn) {
+            URN existing = map.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            map.put(key, urn);
+            return urn;
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized void clear() {
+            map.clear();
+        }
+    }
+}
@@ -2,19 +2,24 @@ package com.sony.ebs.octopus3.commons.urn;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.builder.EqualsBuilder;
-import org.apache.commons.lang.builder.HashCodeBuilder;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.AbstractList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 /**
  * Default implementation of URN. All data in urn string is converted into lowercase.
+ * <p/>
+ * The instances are immutable. URN is kept as a single lowercase string together with the start offsets of its
+ * sections, so toString(), hashCode() and equals() do not allocate. Values are exposed as a read only view over the
+ * string and the path representation is computed once.
+ * <p/>
+ * Ancestors and descendants are created structurally: sections which are already valid are not validated again and
+ * section offsets are shared with the ancestors.
  *
  * @author Lemi Orhan Ergin
  */
@@ -23,8 +28,22 @@ public class URNImpl implements URN {
     public static final String REGEXP_SECTION = "(?!.*\\.\\.)(?i)([a-z0-9-_+\\.%]+)";
     public static final String REGEXP_URN = "(?i)" + URN_PREFIX + "(" + URN_DELIMITER + REGEXP_SECTION + "){2,}";
 
+    private static final long serialVersionUID = 4209518452106411539L;
+
+    /**
+     * Lowercase URN string, like "urn:type:value1:value2"
+     */
+    private String urn;
+    /**
+     * Start offsets of the sections in URN string, type being the first one. The array might be shared with the
+     * descendants, so only the first {@link #count} items belong to this URN.
+     */
+    private int[] starts;
+    private int count;
     private String type;
-    private List<String> values;
+
+    private transient List<String> values;
+    private transient String path;
 
     /**
      * First, the string is converted into URN object. We validate the urn string in this way because, if no exception
@@ -66,14 +85,37 @@ public class URNImpl implements URN {
 
     /**
      * @param parent parent URN, like "urn:a:b" to add c for "urn:a:b:c"
-     * @param values Values as list of String
+     * @param values Values as list of String; a value containing delimiters, like "c:d", is split into several values
      * @throws URNCreationException
      */
     public URNImpl(URN parent, String... values) throws URNCreationException {
         if (parent == null || values == null || values.length == 0) {
-            throw new URNCreationException("Cannot validate the URN because type [" + type + "] or values [" + ArrayUtils.toString(values) + "] is null");
+            throw new URNCreationException("Cannot validate the URN because parent [" + parent + "] or values [" + ArrayUtils.toString(values) + "] is null");
+        }
+        if (parent instanceof URNImpl && !containsDelimiter(values)) {
+            append((URNImpl) parent, values);
+        } else {
+            process(parent.toString() + URN_DELIMITER + StringUtils.join(values, URN_DELIMITER));
+        }
+    }
+
+    private static boolean containsDelimiter(String... values) {
+        for (String value : values) {
+            if (value != null && value.contains(URN_DELIMITER)) {
+                return true;
+            }
         }
-        process(parent.toString() + URN_DELIMITER + StringUtils.join(values, URN_DELIMITER));
+        return false;
+    }
+
+    /**
+     * Creates an ancestor or descendant of an already valid URN without validating it again
+     */
+    private URNImpl(String urn, int[] starts, int count, String type) {
+        this.urn = urn;
+        this.starts = starts;
+        this.count = count;
+        this.type = type;
     }
 
     /**
@@ -88,9 +130,20 @@ public class URNImpl implements URN {
         if (base == null || path == null) {
             throw new URNCreationException("Cannot validate the URN because base path [" + base + "] or file path [" + path + "] is null");
         }
-        process(URN_PREFIX + URN_DELIMITER +
+        process(toURNString(base, path));
+    }
+
+    /**
+     * Converts the path of a file relative to the base folder into URN string
+     *
+     * @param base is the path of base folder, like "/home"
+     * @param path is the path of the file, like "/home/path/to/file"
+     * @return URN string, like "urn:path:to:file"
+     */
+    static String toURNString(Path base, Path path) {
+        return URN_PREFIX + URN_DELIMITER +
                 path.subpath(base.getNameCount(), path.getNameCount()).toString()
-                        .replace(File.separator, URN_DELIMITER));
+                        .replace(File.separator, URN_DELIMITER);
     }
 
     /**
@@ -100,14 +153,54 @@ public class URNImpl implements URN {
      * @throws URNCreationException occurs in case of issues
      */
     protected void process(String urnStr) throws URNCreationException {
-        List<String> tokens;
-
-        if (!validateURN(urnStr)) {
+        URNParser.Sections sections = URNParser.parse(urnStr);
+        if (sections == null) {
             throw new URNCreationException("URN string [" + urnStr + "] is invalid");
         }
-        tokens = Arrays.asList(StringUtils.splitByWholeSeparatorPreserveAllTokens(urnStr, URN_DELIMITER));
-        this.type = tokens.get(1).toLowerCase().intern();
-        this.values = lowercase(tokens.subList(2, tokens.size()));
+        init(sections);
+    }
+
+    /**
+     * Creates a URN from already parsed sections, without throwing exceptions
+     *
+     * @param sections result of {@link URNParser#parse(String)}
+     * @return valid URN
+     */
+    static URNImpl of(URNParser.Sections sections) {
+        return new URNImpl(sections.urn, sections.starts, sections.count(), sections.get(0).intern());
+    }
+
+    private void init(URNParser.Sections sections) {
+        this.urn = sections.urn;
+        this.starts = sections.starts;
+        this.count = sections.count();
+        this.type = sections.get(0).intern();
+    }
+
+    /**
+     * Appends values to a valid URN. Only the new values are validated.
+     *
+     * @param parent valid URN
+     * @param values to append
+     * @throws URNCreationException occurs if any of the values is invalid
+     */
+    private void append(URNImpl parent, String... values) throws URNCreationException {
+        StringBuilder builder = new StringBuilder(parent.urn.length() + values.length * 16).append(parent.urn);
+        int[] childStarts = new int[parent.count + values.length];
+        System.arraycopy(parent.starts, 0, childStarts, 0, parent.count);
+        for (int i = 0; i < values.length; i++) {
+            String section = URNParser.section(values[i]);
+            if (section == null) {
+                throw new URNCreationException("Value [" + values[i] + "] cannot be appended to URN [" + parent.urn + "]");
+            }
+            builder.append(URN_DELIMITER);
+            childStarts[parent.count + i] = builder.length();
+            builder.append(section);
+        }
+        this.urn = builder.toString();
+        this.starts = childStarts;
+        this.count = childStarts.length;
+        this.type = parent.type;
     }
 
     @Override
@@ -117,26 +210,123 @@ public class URNImpl implements URN {
 
     @Override
     public List<String> getValues() {
-        return values;
+        List<String> view = values;
+        if (view == null) {
+            view = new Values();
+            values = view;
+        }
+        return view;
     }
 
     @Override
     public String toString() {
-        return URN_PREFIX + URN_DELIMITER + type + URN_DELIMITER + StringUtils.join(values, URN_DELIMITER);
+        return urn;
     }
 
     @Override
     public String toPath() {
-        return Paths.get("/" + type + "/" + StringUtils.join(values, "/")).toString();
+        String result = path;
+        if (result == null) {
+            result = File.separator + urn.substring(starts[0]).replace(URN_DELIMITER.charAt(0), File.separatorChar);
+            path = result;
+        }
+        return result;
     }
 
+    /**
+     * Parent shares the section offsets of this URN and is not validated again
+     */
     @Override
     public URN getParent() throws URNCreationException {
-        List<String> parentValues = new ArrayList<String>(values.size() - 1);
-        for (int i = 0; i < values.size() - 1; i++) {
-            parentValues.add(values.get(i));
+        if (count <= 2) {
+            throw new URNCreationException("URN [" + urn + "] does not have a parent since it has a single value");
+        }
+        return ancestor(count - 1);
+    }
+
+    @Override
+    public URN child(String value) throws URNCreationException {
+        if (containsDelimiter(value)) {
+            throw new URNCreationException("Value [" + value + "] cannot be appended to URN [" + urn + "] as a single section");
+        }
+        return new URNImpl(this, value);
+    }
+
+    @Override
+    public Iterable<URN> ancestors() {
+        return new Iterable<URN>() {
+            @Override
+            public Iterator<URN> iterator() {
+                return new Iterator<URN>() {
+                    private int next = count - 1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 2;
+                    }
+
+                    @Override
+                    public URN next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return ancestor(next--);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("Ancestors of a URN cannot be removed");
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean isAncestorOf(URN other) {
+        if (other == null) {
+            return false;
+        }
+        String otherStr = other.toString();
+        return otherStr.length() > urn.length() && otherStr.startsWith(urn)
+                && otherStr.charAt(urn.length()) == URN_DELIMITER.charAt(0);
+    }
+
+    @Override
+    public URN commonPrefix(URN other) {
+        if (other == null) {
+            return null;
+        }
+        String otherStr = other.toString();
+        int common = 0;
+        for (int i = 0; i < count; i++) {
+            int end = end(i);
+            if (!otherStr.regionMatches(0, urn, 0, end)
+                    || (otherStr.length() > end && otherStr.charAt(end) != URN_DELIMITER.charAt(0))) {
+                break;
+            }
+            common = i + 1;
         }
-        return new URNImpl(type, parentValues);
+        if (common < 2) {
+            return null;
+        }
+        return common == count ? this : ancestor(common);
+    }
+
+    /**
+     * @param sections number of sections, including type, to keep
+     * @return the ancestor sharing section offsets with this URN
+     */
+    private URNImpl ancestor(int sections) {
+        return new URNImpl(urn.substring(0, end(sections - 1)), starts, sections, type);
+    }
+
+    /**
+     * @param index of the section, type being 0
+     * @return end offset of the section in URN string
+     */
+    private int end(int index) {
+        return index + 1 < count ? starts[index + 1] - 1 : urn.length();
     }
 
     @Override
@@ -150,44 +340,44 @@ public class URNImpl implements URN {
         if (obj.getClass() != getClass()) {
             return false;
         }
-        URNImpl rhs = (URNImpl) obj;
-        return new EqualsBuilder()
-                .append(getType(), rhs.getType())
-                .append(getValues(), rhs.getValues())
-                .isEquals();
+        return urn.equals(((URNImpl) obj).urn);
     }
 
+    /**
+     * Hash code of the URN string, which is computed once and cached by the string itself
+     */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(getType())
-                .append(getValues())
-                .toHashCode();
+        return urn.hashCode();
     }
 
     /**
-     * Validates the incoming URN string
+     * Validates the incoming URN string. Same rules as {@link #REGEXP_URN} are applied by {@link URNParser} without
+     * using regular expressions.
      *
      * @param data string representation of the URN/type/value
      * @return true if it is a valid URN, type or value
      */
     protected boolean validateURN(String data) throws URNCreationException {
-        return Pattern.matches(REGEXP_URN, data);
+        return URNParser.parse(data) != null;
     }
 
-
     /**
-     * Sanitizes and converts the items in a list to lowercase
-     *
-     * @param input as values of a URN
-     * @return sanitized, lowercase values as list
-     * @throws URNCreationException due to missing or wrong data
+     * Read only view of the values, backed by the URN string. Values are cut from the string when they are asked for.
      */
-    protected List<String> lowercase(List<String> input) throws URNCreationException {
-        List<String> output = new ArrayList<String>();
-        for (String value : input) {
-            output.add(value.toLowerCase());
+    private class Values extends AbstractList<String> implements RandomAccess {
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index [" + index + "] is out of values of URN [" + urn + "]");
+            }
+            return urn.substring(starts[index + 1], end(index + 1));
+        }
+
+        @Override
+        public int size() {
+            return count - 1;
         }
-        return output;
     }
 }
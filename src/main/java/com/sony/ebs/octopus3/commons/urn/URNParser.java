@@ -0,0 +1,206 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import java.util.Arrays;
+
+/**
+ * Hand written, single pass tokenizer for URN strings. Validation, splitting and lowercasing are done in one scan
+ * over the characters and the rules are identical to {@link URNImpl#REGEXP_URN}:
+ * 1) The string starts with "urn" prefix (case insensitive) followed by at least 2 sections
+ * 2) Sections are separated by ":" and cannot be empty
+ * 3) Sections only contain letters, digits and "-", "_", "+", ".", "%" characters
+ * 4) The string does not contain ".." anywhere
+ * <p/>
+ * Only ASCII letters are accepted, so lowercasing does not depend on the default locale. If the string is already
+ * in lowercase, it is used as is without any copies.
+ */
+final class URNParser {
+
+    private static final char DELIMITER = ':';
+
+    private URNParser() {
+    }
+
+    /**
+     * Validates and splits the given URN string.
+     *
+     * @param urnStr string representation of the URN
+     * @return lowercase URN string and start offsets of its sections; null if the string is not a valid URN
+     */
+    static Sections parse(String urnStr) {
+        if (urnStr == null) {
+            return null;
+        }
+        int length = urnStr.length();
+        int offset = URN.URN_PREFIX.length() + 1;
+        if (length <= offset || !hasPrefix(urnStr)) {
+            return null;
+        }
+
+        char[] chars = null;
+        int[] starts = new int[8];
+        int sections = 1;
+        starts[0] = offset;
+        char previous = DELIMITER;
+
+        for (int i = offset; i < length; i++) {
+            char c = urnStr.charAt(i);
+            if (c == DELIMITER) {
+                if (previous == DELIMITER) {
+                    return null;
+                }
+                if (sections == starts.length) {
+                    starts = Arrays.copyOf(starts, sections * 2);
+                }
+                starts[sections++] = i + 1;
+            } else if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+                if (chars == null) {
+                    chars = urnStr.toCharArray();
+                }
+                chars[i] = c;
+            } else if (c == '.') {
+                if (previous == '.') {
+                    return null;
+                }
+            } else if (!isSectionChar(c)) {
+                return null;
+            }
+            previous = c;
+        }
+        if (previous == DELIMITER || sections < 2) {
+            return null;
+        }
+
+        if (chars == null && urnStr.startsWith(URN.URN_PREFIX)) {
+            return new Sections(urnStr, Arrays.copyOf(starts, sections));
+        }
+        if (chars == null) {
+            chars = urnStr.toCharArray();
+        }
+        URN.URN_PREFIX.getChars(0, offset - 1, chars, 0);
+        return new Sections(new String(chars), Arrays.copyOf(starts, sections));
+    }
+
+    /**
+     * Explains why the given string is not a valid URN. It is slower than {@link #parse(String)} and meant to be
+     * called only for the strings which are already known to be invalid.
+     *
+     * @param urnStr string representation of the URN
+     * @return reason of the failure; null if the string is a valid URN
+     */
+    static String explain(String urnStr) {
+        if (urnStr == null || urnStr.isEmpty()) {
+            return "URN string is empty";
+        }
+        int offset = URN.URN_PREFIX.length() + 1;
+        if (urnStr.length() < offset || !hasPrefix(urnStr)) {
+            return "URN string does not start with \"" + URN.URN_PREFIX + URN.URN_DELIMITER + "\"";
+        }
+        int sections = 1;
+        char previous = DELIMITER;
+        for (int i = offset; i < urnStr.length(); i++) {
+            char c = urnStr.charAt(i);
+            if (c == DELIMITER) {
+                if (previous == DELIMITER) {
+                    return "Empty section at position " + i;
+                }
+                sections++;
+            } else if (c == '.' && previous == '.') {
+                return "Consecutive dots at position " + (i - 1);
+            } else if (c != '.' && !isSectionChar(c) && !(c >= 'A' && c <= 'Z')) {
+                return "Invalid character '" + c + "' at position " + i;
+            }
+            previous = c;
+        }
+        if (previous == DELIMITER) {
+            return "Empty section at position " + urnStr.length();
+        }
+        if (sections < 2) {
+            return "URN does not have any values";
+        }
+        return null;
+    }
+
+    /**
+     * Validates and lowercases a single section, like a value to be appended to a valid URN
+     *
+     * @param section value of a URN
+     * @return lowercase section; null if the section is not valid
+     */
+    static String section(String section) {
+        if (section == null || section.isEmpty()) {
+            return null;
+        }
+        char[] chars = null;
+        char previous = DELIMITER;
+        for (int i = 0; i < section.length(); i++) {
+            char c = section.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+                if (chars == null) {
+                    chars = section.toCharArray();
+                }
+                chars[i] = c;
+            } else if (c == '.') {
+                if (previous == '.') {
+                    return null;
+                }
+            } else if (!isSectionChar(c)) {
+                return null;
+            }
+            previous = c;
+        }
+        return chars == null ? section : new String(chars);
+    }
+
+    /**
+     * Checks "urn:" prefix in ASCII case insensitive manner, the same way the regular expression does
+     */
+    private static boolean hasPrefix(String urnStr) {
+        String prefix = URN.URN_PREFIX;
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = urnStr.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if (c != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return urnStr.charAt(prefix.length()) == DELIMITER;
+    }
+
+    /**
+     * Lowercase letters, digits and special characters allowed in a section. Uppercase letters and dots are handled
+     * by the caller.
+     */
+    private static boolean isSectionChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '+' || c == '%';
+    }
+
+    /**
+     * Result of parsing: lowercase URN string and start offsets of its sections, type being the first section
+     */
+    static final class Sections {
+
+        final String urn;
+        final int[] starts;
+
+        Sections(String urn, int[] starts) {
+            this.urn = urn;
+            this.starts = starts;
+        }
+
+        int count() {
+            return starts.length;
+        }
+
+        String get(int index) {
+            return urn.substring(starts[index], end(index));
+        }
+
+        int end(int index) {
+            return index + 1 < starts.length ? starts[index + 1] - 1 : urn.length();
+        }
+    }
+}
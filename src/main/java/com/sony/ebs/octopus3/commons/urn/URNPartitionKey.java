@@ -0,0 +1,52 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import com.hazelcast.core.PartitionAware;
+
+import java.io.Serializable;
+
+/**
+ * Key of a Hazelcast map entry or task for a URN. Hazelcast places the keys by their partition key, so all keys with
+ * the same partition key, like the URNs of a locale, are owned by the same member.
+ * Keys are created by {@link URNPartitioner#keyFor(URN)}.
+ */
+public class URNPartitionKey implements PartitionAware<String>, Serializable {
+
+    private static final long serialVersionUID = 6342087713045391124L;
+
+    private final URN urn;
+    private final String partitionKey;
+
+    public URNPartitionKey(URN urn, String partitionKey) {
+        this.urn = urn;
+        this.partitionKey = partitionKey;
+    }
+
+    public URN getURN() {
+        return urn;
+    }
+
+    @Override
+    public String getPartitionKey() {
+        return partitionKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof URNPartitionKey)) return false;
+
+        URNPartitionKey that = (URNPartitionKey) o;
+
+        return urn.equals(that.urn) && partitionKey.equals(that.partitionKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return urn.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return urn + "@" + partitionKey;
+    }
+}
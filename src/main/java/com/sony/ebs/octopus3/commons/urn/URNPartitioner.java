@@ -0,0 +1,194 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Splits URN work deterministically among nodes. URNs are grouped by their first sections, the partition key, so
+ * related URNs always land on the same node. With depth 3, all URNs under "urn:global_sku:score:en_gb" share the
+ * partition key "global_sku:score:en_gb".
+ * <p/>
+ * Nodes are placed on a consistent hash ring with a number of virtual nodes each, so adding or removing a node only
+ * moves the keys of that node. The hash does not depend on the JVM, so every instance computes the same assignment.
+ * <p/>
+ * In a Hazelcast cluster, {@link #keyFor(URN)} creates keys which are co-located by the same partition key, so map
+ * entries and tasks of a locale are kept on the same member.
+ */
+public class URNPartitioner {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int depth;
+    private final int virtualNodes;
+    private volatile TreeMap<Integer, String> ring = new TreeMap<Integer, String>();
+    private volatile Set<String> nodes = Collections.emptySet();
+
+    /**
+     * @param depth number of sections, including type, used as partition key
+     */
+    public URNPartitioner(int depth) {
+        this(depth, Collections.<String>emptyList(), DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param depth number of sections, including type, used as partition key
+     * @param nodes names of the nodes, like host names
+     */
+    public URNPartitioner(int depth, Collection<String> nodes) {
+        this(depth, nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param depth        number of sections, including type, used as partition key
+     * @param nodes        names of the nodes, like host names
+     * @param virtualNodes number of points every node has on the ring
+     */
+    public URNPartitioner(int depth, Collection<String> nodes, int virtualNodes) {
+        if (depth < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Depth [" + depth + "] and virtual nodes [" + virtualNodes + "] should be positive");
+        }
+        this.depth = depth;
+        this.virtualNodes = virtualNodes;
+        for (String node : nodes) {
+            addNode(node);
+        }
+    }
+
+    public synchronized void addNode(String node) {
+        if (nodes.contains(node)) {
+            return;
+        }
+        TreeMap<Integer, String> newRing = new TreeMap<Integer, String>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            newRing.put(hash(node + "#" + i), node);
+        }
+        Set<String> newNodes = new LinkedHashSet<String>(nodes);
+        newNodes.add(node);
+        ring = newRing;
+        nodes = Collections.unmodifiableSet(newNodes);
+    }
+
+    public synchronized void removeNode(String node) {
+        if (!nodes.contains(node)) {
+            return;
+        }
+        TreeMap<Integer, String> newRing = new TreeMap<Integer, String>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            Integer point = hash(node + "#" + i);
+            if (node.equals(newRing.get(point))) {
+                newRing.remove(point);
+            }
+        }
+        Set<String> newNodes = new LinkedHashSet<String>(nodes);
+        newNodes.remove(node);
+        ring = newRing;
+        nodes = Collections.unmodifiableSet(newNodes);
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @param urn like "urn:global_sku:score:en_gb:a"
+     * @return first sections of the URN up to the depth, like "global_sku:score:en_gb" for depth 3
+     */
+    public String partitionKey(URN urn) {
+        return partitionKey(urn.toString(), depth);
+    }
+
+    /**
+     * @param urn to assign
+     * @return node responsible for the URN; null if there are no nodes
+     */
+    public String nodeFor(URN urn) {
+        return nodeForKey(partitionKey(urn));
+    }
+
+    /**
+     * @param partitionKey as returned by {@link #partitionKey(URN)}
+     * @return node responsible for the partition key; null if there are no nodes
+     */
+    public String nodeForKey(String partitionKey) {
+        TreeMap<Integer, String> current = ring;
+        if (current.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Integer, String> entry = current.ceilingEntry(hash(partitionKey));
+        return entry != null ? entry.getValue() : current.firstEntry().getValue();
+    }
+
+    /**
+     * Groups the URNs by the nodes responsible for them
+     *
+     * @param urns to assign
+     * @return URNs of every node in the given order
+     */
+    public Map<String, List<URN>> assign(Collection<? extends URN> urns) {
+        SortedMap<String, List<URN>> assignments = new TreeMap<String, List<URN>>();
+        for (URN urn : urns) {
+            String node = nodeFor(urn);
+            if (node == null) {
+                continue;
+            }
+            List<URN> assigned = assignments.get(node);
+            if (assigned == null) {
+                assigned = new ArrayList<URN>();
+                assignments.put(node, assigned);
+            }
+            assigned.add(urn);
+        }
+        return assignments;
+    }
+
+    /**
+     * @param urn to be used as key of a Hazelcast map or task
+     * @return key co-located with the other URNs of the same partition key
+     */
+    public URNPartitionKey keyFor(URN urn) {
+        return new URNPartitionKey(urn, partitionKey(urn));
+    }
+
+    static String partitionKey(String urnStr, int depth) {
+        int start = URN.URN_PREFIX.length() + 1;
+        int end = start;
+        for (int section = 0; section < depth; section++) {
+            end = urnStr.indexOf(':', end + 1);
+            if (end < 0) {
+                return urnStr.substring(start);
+            }
+        }
+        return urnStr.substring(start, end);
+    }
+
+    /**
+     * FNV-1a over UTF-8 bytes, followed by the finalizer of MurmurHash3 for a better spread on the ring
+     */
+    static int hash(String key) {
+        int hash = 0x811C9DC5;
+        for (byte b : key.getBytes(UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
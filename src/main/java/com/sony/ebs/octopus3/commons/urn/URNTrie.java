@@ -0,0 +1,408 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical index of URNs. Every node of the trie is a section of a URN: children of the root are types and the
+ * nodes below are values in order, so "urn:global_sku:score:en_gb" is kept under the path global_sku -> score -> en_gb.
+ * It answers questions like "all URNs under urn:global_sku:score" or "direct children of urn:global_sku:score"
+ * without walking the filesystem.
+ * <p/>
+ * A section is stored only once in the node it belongs to, no matter how many URNs share it. Nodes with a few
+ * children keep them in a small array; nodes with many children, like SKUs under a locale, switch to a hash map.
+ * <p/>
+ * Updates are serialized by a lock, while lookups and iterations do not lock at all. Iterations are weakly
+ * consistent: they never fail due to concurrent updates, but may or may not reflect them.
+ */
+public class URNTrie implements Iterable<URN> {
+
+    private final Node root = new Node(null);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Adds the URN to the index
+     *
+     * @param urn to add
+     * @return true if the URN was not in the index
+     */
+    public boolean add(URN urn) {
+        List<String> values = urn.getValues();
+        lock.lock();
+        try {
+            Node node = root.childOrCreate(urn.getType());
+            for (String value : values) {
+                node = node.childOrCreate(value);
+            }
+            if (node.urn != null) {
+                return false;
+            }
+            node.urn = urn;
+
+            root.size++;
+            node = root.child(urn.getType());
+            node.size++;
+            for (String value : values) {
+                node = node.child(value);
+                node.size++;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the URN from the index. Nodes left without any URNs under them are removed as well.
+     *
+     * @param urn to remove
+     * @return true if the URN was in the index
+     */
+    public boolean remove(URN urn) {
+        List<String> values = urn.getValues();
+        lock.lock();
+        try {
+            Node[] path = new Node[values.size() + 2];
+            path[0] = root;
+            path[1] = root.child(urn.getType());
+            for (int i = 0; i < values.size() && path[i + 1] != null; i++) {
+                path[i + 2] = path[i + 1].child(values.get(i));
+            }
+            Node node = path[path.length - 1];
+            if (node == null || node.urn == null) {
+                return false;
+            }
+            node.urn = null;
+
+            for (int i = path.length - 1; i >= 0; i--) {
+                path[i].size--;
+                if (i > 0 && path[i].size == 0) {
+                    path[i - 1].removeChild(path[i].segment);
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all URNs from the index
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            root.children = null;
+            root.size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param urn to look for
+     * @return true if the URN is in the index
+     */
+    public boolean contains(URN urn) {
+        return get(urn) != null;
+    }
+
+    /**
+     * Exact lookup
+     *
+     * @param urn to look for
+     * @return the URN instance in the index which is equal to the given one; null if there is no such URN
+     */
+    public URN get(URN urn) {
+        Node node = find(urn);
+        return node != null ? node.urn : null;
+    }
+
+    /**
+     * @return number of URNs in the index
+     */
+    public int size() {
+        return root.size;
+    }
+
+    public boolean isEmpty() {
+        return root.size == 0;
+    }
+
+    /**
+     * Counts the URNs under the given prefix. The prefix itself is counted if it is in the index.
+     *
+     * @param prefix like "urn:global_sku:score"
+     * @return number of URNs starting with the prefix
+     */
+    public int count(URN prefix) {
+        Node node = find(prefix);
+        return node != null ? node.size : 0;
+    }
+
+    /**
+     * Counts the URNs of the given type
+     *
+     * @param type like "global_sku"
+     * @return number of URNs with the type
+     */
+    public int count(String type) {
+        Node node = root.child(type);
+        return node != null ? node.size : 0;
+    }
+
+    /**
+     * Lists the sections directly under the given prefix, like listing a folder. A child does not have to be a URN
+     * in the index itself; it is enough that there is a URN under it.
+     *
+     * @param parent like "urn:global_sku:score"
+     * @return sections of the children, like ["en_gb", "fr_fr"]
+     */
+    public List<String> children(URN parent) {
+        return segments(find(parent));
+    }
+
+    /**
+     * Lists the first values of URNs of the given type
+     *
+     * @param type like "global_sku"
+     * @return sections directly under the type
+     */
+    public List<String> children(String type) {
+        return segments(root.child(type));
+    }
+
+    /**
+     * @param parent like "urn:global_sku:score"
+     * @return number of sections directly under the given prefix
+     */
+    public int childCount(URN parent) {
+        Node node = find(parent);
+        return node != null ? node.childCount() : 0;
+    }
+
+    /**
+     * Iterates the URNs under the given prefix, including the prefix itself if it is in the index. The iteration is
+     * lazy, no intermediate lists are created.
+     *
+     * @param prefix like "urn:global_sku:score"
+     * @return URNs starting with the prefix
+     */
+    public Iterable<URN> prefixedBy(URN prefix) {
+        return iterable(find(prefix));
+    }
+
+    /**
+     * Iterates the URNs of the given type
+     *
+     * @param type like "global_sku"
+     * @return URNs with the type
+     */
+    public Iterable<URN> ofType(String type) {
+        return iterable(root.child(type));
+    }
+
+    /**
+     * Iterates all URNs in the index
+     */
+    @Override
+    public Iterator<URN> iterator() {
+        return new URNIterator(root);
+    }
+
+    private Node find(URN urn) {
+        if (urn == null) {
+            return null;
+        }
+        Node node = root.child(urn.getType());
+        List<String> values = urn.getValues();
+        for (int i = 0; i < values.size() && node != null; i++) {
+            node = node.child(values.get(i));
+        }
+        return node;
+    }
+
+    private static List<String> segments(Node node) {
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        List<String> segments = new ArrayList<String>(node.childCount());
+        for (Iterator<Node> it = node.children(); it.hasNext(); ) {
+            segments.add(it.next().segment);
+        }
+        return segments;
+    }
+
+    private static Iterable<URN> iterable(final Node node) {
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        return new Iterable<URN>() {
+            @Override
+            public Iterator<URN> iterator() {
+                return new URNIterator(node);
+            }
+        };
+    }
+
+    /**
+     * Node of the trie. Children are kept as null, as an array of at most {@link #ARRAY_LIMIT} nodes which is copied on
+     * every update, or as a concurrent map for larger fan-outs. Fields are only updated under the lock of the trie.
+     */
+    private static final class Node {
+
+        private static final int ARRAY_LIMIT = 8;
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        final String segment;
+        volatile URN urn;
+        volatile int size;
+        volatile Object children;
+
+        Node(String segment) {
+            this.segment = segment;
+        }
+
+        @SuppressWarnings("unchecked")
+        Node child(String segment) {
+            Object current = children;
+            if (current instanceof Node[]) {
+                for (Node node : (Node[]) current) {
+                    if (node.segment.equals(segment)) {
+                        return node;
+                    }
+                }
+                return null;
+            }
+            return current != null ? ((ConcurrentHashMap<String, Node>) current).get(segment) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Node childOrCreate(String segment) {
+            Node node = child(segment);
+            if (node != null) {
+                return node;
+            }
+            node = new Node(segment);
+            Object current = children;
+            if (current == null) {
+                children = new Node[]{node};
+            } else if (current instanceof Node[] && ((Node[]) current).length < ARRAY_LIMIT) {
+                Node[] array = (Node[]) current;
+                Node[] grown = new Node[array.length + 1];
+                System.arraycopy(array, 0, grown, 0, array.length);
+                grown[array.length] = node;
+                children = grown;
+            } else if (current instanceof Node[]) {
+                ConcurrentHashMap<String, Node> map = new ConcurrentHashMap<String, Node>(ARRAY_LIMIT * 4);
+                for (Node existing : (Node[]) current) {
+                    map.put(existing.segment, existing);
+                }
+                map.put(segment, node);
+                children = map;
+            } else {
+                ((ConcurrentHashMap<String, Node>) current).put(segment, node);
+            }
+            return node;
+        }
+
+        @SuppressWarnings("unchecked")
+        void removeChild(String segment) {
+            Object current = children;
+            if (current instanceof Node[]) {
+                Node[] array = (Node[]) current;
+                for (int i = 0; i < array.length; i++) {
+                    if (array[i].segment.equals(segment)) {
+                        Node[] shrunk = new Node[array.length - 1];
+                        System.arraycopy(array, 0, shrunk, 0, i);
+                        System.arraycopy(array, i + 1, shrunk, i, shrunk.length - i);
+                        children = shrunk.length > 0 ? shrunk : null;
+                        return;
+                    }
+                }
+            } else if (current != null) {
+                ((ConcurrentHashMap<String, Node>) current).remove(segment);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Iterator<Node> children() {
+            Object current = children;
+            if (current instanceof Node[]) {
+                return Arrays.asList((Node[]) current).iterator();
+            }
+            if (current != null) {
+                return ((ConcurrentHashMap<String, Node>) current).values().iterator();
+            }
+            return Arrays.asList(NO_CHILDREN).iterator();
+        }
+
+        @SuppressWarnings("unchecked")
+        int childCount() {
+            Object current = children;
+            if (current instanceof Node[]) {
+                return ((Node[]) current).length;
+            }
+            return current != null ? ((ConcurrentHashMap<String, Node>) current).size() : 0;
+        }
+    }
+
+    /**
+     * Depth first iterator over a subtree. Only one iterator of children per level is kept.
+     */
+    private static final class URNIterator implements Iterator<URN> {
+
+        private final Deque<Iterator<Node>> stack = new ArrayDeque<Iterator<Node>>();
+        private URN next;
+
+        URNIterator(Node start) {
+            next = start.urn;
+            stack.push(start.children());
+            if (next == null) {
+                advance();
+            }
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !stack.isEmpty()) {
+                Iterator<Node> top = stack.peek();
+                if (!top.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                Node node = top.next();
+                stack.push(node.children());
+                next = node.urn;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public URN next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            URN current = next;
+            advance();
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("URNs cannot be removed through the iterator");
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.Permission;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+public class ArchiveCompactorTest {
+
+    Path basePath = Paths.get(System.getProperty("java.io.tmpdir") + "/compactorTest");
+    Path archive = basePath.resolve("global_sku/score/archive");
+
+    @Before
+    public void doBefore() {
+        FileUtils.delete(basePath, false);
+    }
+
+    @After
+    public void doAfter() {
+        System.setSecurityManager(null);
+        FileUtils.delete(basePath, false);
+    }
+
+    @Test
+    public void compactsAgedFolders() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            FileUtils.writeFile(archive.resolve("old/en_gb/sku" + i), new byte[4096], true, true);
+            FileUtils.writeFile(archive.resolve("new/en_gb/sku" + i), new byte[4096], true, true);
+        }
+        age(archive.resolve("old"), 2);
+        FileUtils.writeFile(archive.resolve("old_20141101.zip.tmp"), "partial".getBytes(), true, true);
+        ArchiveCompactor compactor = new ArchiveCompactor(archive).withCompactAfter(1, TimeUnit.DAYS);
+
+        FileOperationResult result = compactor.compact();
+
+        assertEquals(1, result.getTrackedCount());
+        Path zipPath = result.getTracked().get(0);
+        assertTrue(zipPath.getFileName().toString().matches("old_\\d{8}\\.zip"));
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertEquals(4096, zipFile.getEntry("en_gb/sku9").getSize());
+        }
+        assertFalse(Files.exists(archive.resolve("old")));
+        assertFalse(Files.exists(archive.resolve("old_20141101.zip.tmp")));
+        assertTrue(Files.exists(archive.resolve("new")));
+        assertEquals(1, compactor.getCompactedCount());
+        assertEquals(40960, compactor.getProcessedBytes());
+        assertTrue(compactor.getReclaimedBytes() > 0);
+        assertEquals(compactor.getReclaimedBytes(), result.getBytes());
+    }
+
+    @Test
+    public void keepsArchiveOfPartlyDeletedFolder() throws Exception {
+        final Path old = archive.resolve("old");
+        FileUtils.writeFile(old.resolve("en_gb/sku1"), new byte[4096], true, true);
+        FileUtils.writeFile(old.resolve("en_gb/sku2"), new byte[4096], true, true);
+        FileUtils.writeFile(archive.resolve("other/en_gb/sku1"), new byte[4096], true, true);
+        age(old, 2);
+        ArchiveCompactor compactor = new ArchiveCompactor(archive).withCompactAfter(1, TimeUnit.DAYS);
+
+        // disable delete permissions for one file of the folder
+        System.setSecurityManager(new SecurityManager() {
+            @Override
+            public void checkDelete(String file) {
+                if (file.equals(old.resolve("en_gb/sku2").toString()))
+                    throw new SecurityException("Unable to delete " + file);
+            }
+
+            @Override
+            public void checkPermission(Permission perm) {
+            }
+        });
+        FileOperationResult first = compactor.compact();
+        System.setSecurityManager(null);
+
+        assertEquals(Arrays.asList(old), first.getFailed());
+        assertEquals(0, first.getBytes());
+        assertEquals(0, compactor.getCompactedCount());
+        Path zipPath = first.getTracked().get(0);
+        long size = Files.size(zipPath);
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertNotNull(zipFile.getEntry("en_gb/sku1"));
+            assertNotNull(zipFile.getEntry("en_gb/sku2"));
+        }
+
+        age(archive.resolve("other"), 2);
+        FileOperationResult second = compactor.compact();
+
+        assertEquals(Arrays.asList(old), second.getFailed());
+        assertEquals(1, second.getTrackedCount());
+        assertTrue(second.getTracked().get(0).getFileName().toString().startsWith("other_"));
+        assertEquals(size, Files.size(zipPath));
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertNotNull(zipFile.getEntry("en_gb/sku1"));
+            assertNotNull(zipFile.getEntry("en_gb/sku2"));
+        }
+        assertEquals(2, compactor.getFailedCount());
+    }
+
+    @Test
+    public void deletesArchivesByRetentionPolicy() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            Path zipPath = archive.resolve("a" + i + ".zip");
+            FileUtils.writeFile(zipPath, new byte[100], true, true);
+            age(zipPath, i);
+        }
+
+        ArchiveCompactor compactor = new ArchiveCompactor(archive).withMaxArchives(4).withMaxAge(4, TimeUnit.DAYS);
+        FileOperationResult result = compactor.compact();
+
+        assertEquals(Arrays.asList(archive.resolve("a4.zip"), archive.resolve("a5.zip")), result.getDeleted());
+        assertFalse(Files.exists(archive.resolve("a4.zip")));
+        assertEquals(2, compactor.getDeletedCount());
+
+        result = new ArchiveCompactor(archive).withMaxBytes(250).compact();
+        assertEquals(1, result.getDeletedCount());
+        assertEquals(100, result.getBytes());
+        assertTrue(Files.exists(archive.resolve("a1.zip")));
+        assertTrue(Files.exists(archive.resolve("a2.zip")));
+    }
+
+    @Test
+    public void throttlesCompaction() throws Exception {
+        FileUtils.writeFile(archive.resolve("old/sku"), new byte[300 * 1024], true, true);
+        age(archive.resolve("old"), 2);
+
+        long start = System.currentTimeMillis();
+        new ArchiveCompactor(archive).withThrottle(1024 * 1024).compact();
+
+        assertTrue(System.currentTimeMillis() - start >= 400);
+    }
+
+    @Test
+    public void runsPeriodically() throws Exception {
+        Files.createDirectories(archive);
+        ArchiveCompactor compactor = new ArchiveCompactor(archive).start(10, TimeUnit.MILLISECONDS);
+        try {
+            for (int i = 0; i < 500 && compactor.getRunCount() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(compactor.getRunCount() >= 2);
+            assertTrue(compactor.getLastRunTime() > 0);
+        } finally {
+            compactor.close();
+        }
+    }
+
+    private static void age(Path path, int days) throws Exception {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days) - 1000));
+    }
+}
@@ -0,0 +1,157 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ContentStoreTest {
+
+    Path basePath = Paths.get(System.getProperty("java.io.tmpdir") + "/contentStoreTest");
+    ContentStore store = new ContentStore(basePath.resolve("blobs"));
+
+    @Before
+    public void doBefore() {
+        FileUtils.delete(basePath, false);
+    }
+
+    @After
+    public void doAfter() {
+        FileUtils.delete(basePath, false);
+    }
+
+    @Test
+    public void identicalContentIsStoredOnce() throws Exception {
+        Path en = basePath.resolve("repo/global_sku/en_gb/sku1");
+        Path fr = basePath.resolve("repo/global_sku/fr_fr/sku1");
+        assertTrue(FileUtils.writeFile(en, ByteBuffer.wrap("sheet".getBytes()), true, true, store));
+        assertTrue(FileUtils.writeFile(fr, ByteBuffer.wrap("sheet".getBytes()), true, true, store));
+
+        assertTrue(Files.isSameFile(en, fr));
+        assertEquals("sheet", new String(Files.readAllBytes(fr)));
+        assertEquals(1, store.getStoredCount());
+        assertEquals(1, store.getLinkedCount());
+        assertEquals(3, ((Number) Files.getAttribute(en, "unix:nlink")).intValue());
+    }
+
+    @Test
+    public void overrideReplacesLinkWithoutChangingOtherFiles() throws Exception {
+        Path en = basePath.resolve("repo/en_gb/sku1");
+        Path fr = basePath.resolve("repo/fr_fr/sku1");
+        FileUtils.writeFile(en, ByteBuffer.wrap("sheet".getBytes()), true, true, store);
+        FileUtils.writeFile(fr, ByteBuffer.wrap("sheet".getBytes()), true, true, store);
+
+        assertFalse(FileUtils.writeFile(fr, ByteBuffer.wrap("other".getBytes()), false, true, store));
+        assertTrue(FileUtils.writeFile(fr, ByteBuffer.wrap("other".getBytes()), true, true, store));
+
+        assertEquals("sheet", new String(Files.readAllBytes(en)));
+        assertEquals("other", new String(Files.readAllBytes(fr)));
+        assertFalse(Files.isSameFile(en, fr));
+    }
+
+    @Test
+    public void copyLinksTarget() throws Exception {
+        Path source = basePath.resolve("repo/en_gb/sku1");
+        Path target = basePath.resolve("repo/fr_fr/sku1");
+        Path other = basePath.resolve("repo/fr_fr/sku2");
+        FileUtils.writeFile(source, "sheet".getBytes(), true, true);
+        Files.createDirectories(target.getParent());
+
+        store.copy(source, target);
+        store.copy(source, other);
+
+        assertTrue(Files.isSameFile(target, other));
+        assertFalse(Files.isSameFile(source, target));
+        assertEquals("sheet", new String(Files.readAllBytes(target)));
+        assertEquals(1, store.getStoredCount());
+        assertEquals(3, ((Number) Files.getAttribute(target, "unix:nlink")).intValue());
+        assertEquals(1, ((Number) Files.getAttribute(source, "unix:nlink")).intValue());
+
+        // source is not the blob, so writing it does not change the copies
+        Files.write(source, "changed".getBytes());
+        assertEquals("sheet", new String(Files.readAllBytes(target)));
+    }
+
+    @Test
+    public void legacyWriteDoesNotChangeOtherLinks() throws Exception {
+        Path en = basePath.resolve("repo/en_gb/sku1");
+        Path fr = basePath.resolve("repo/fr_fr/sku1");
+        FileUtils.writeFile(en, ByteBuffer.wrap("sheet".getBytes()), true, true, store);
+        FileUtils.writeFile(fr, ByteBuffer.wrap("sheet".getBytes()), true, true, store);
+
+        assertTrue(FileUtils.writeFile(fr, "other".getBytes(), true, true));
+
+        assertEquals("other", new String(Files.readAllBytes(fr)));
+        assertEquals("sheet", new String(Files.readAllBytes(en)));
+        assertTrue(Files.isSameFile(en, store.getBlobPath(sha256("sheet"))));
+        assertEquals("sheet", new String(Files.readAllBytes(store.getBlobPath(sha256("sheet")))));
+    }
+
+    @Test
+    public void copyOfLargeFileDoesNotChangeOtherLinks() throws Exception {
+        byte[] linked = new byte[(int) ParallelCopyFileVisitor.TRANSFER_THRESHOLD * 2];
+        byte[] copied = new byte[linked.length];
+        Arrays.fill(linked, (byte) 'A');
+        Arrays.fill(copied, (byte) 'B');
+        Path en = basePath.resolve("repo/en_gb/sku1");
+        Path fr = basePath.resolve("repo/fr_fr/sku1");
+        Path source = basePath.resolve("source/sku1");
+        FileUtils.writeFile(en, ByteBuffer.wrap(linked), true, true, store);
+        FileUtils.writeFile(fr, ByteBuffer.wrap(linked), true, true, store);
+        FileUtils.writeFile(source, copied, true, true);
+
+        FileOperationResult result = FileUtils.copy(source, en.getParent(), 2);
+
+        assertEquals(0, result.getFailedCount());
+        assertArrayEquals(copied, Files.readAllBytes(en));
+        assertArrayEquals(linked, Files.readAllBytes(fr));
+        assertArrayEquals(linked, Files.readAllBytes(store.getBlobPath(sha256(linked))));
+    }
+
+    @Test
+    public void blobsHaveUmaskPermissions() throws Exception {
+        Path direct = basePath.resolve("repo/direct");
+        Path linked = basePath.resolve("repo/linked");
+        Files.createDirectories(direct.getParent());
+        Files.write(direct, "sheet".getBytes());
+        FileUtils.writeFile(linked, ByteBuffer.wrap("sheet".getBytes()), true, true, store);
+
+        assertEquals(Files.getPosixFilePermissions(direct), Files.getPosixFilePermissions(linked));
+    }
+
+    @Test
+    public void gcDeletesUnreferencedBlobs() throws Exception {
+        Path en = basePath.resolve("repo/en_gb/sku1");
+        Path fr = basePath.resolve("repo/fr_fr/sku1");
+        FileUtils.writeFile(en, ByteBuffer.wrap("sheet".getBytes()), true, true, store);
+        FileUtils.writeFile(fr, ByteBuffer.wrap("removed".getBytes()), true, true, store);
+        Files.delete(fr);
+
+        FileOperationResult result = store.gc();
+
+        assertEquals(1, result.getTrackedCount());
+        assertEquals(1, result.getSkippedCount());
+        assertEquals("removed".length(), result.getBytes());
+        assertEquals("sheet", new String(Files.readAllBytes(en)));
+
+        FileUtils.writeFile(fr, ByteBuffer.wrap("removed".getBytes()), true, true, store);
+        assertEquals("removed", new String(Files.readAllBytes(fr)));
+        assertEquals(3, store.getStoredCount());
+    }
+
+    private static String sha256(String content) throws Exception {
+        return sha256(content.getBytes());
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return FileDigest.toHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
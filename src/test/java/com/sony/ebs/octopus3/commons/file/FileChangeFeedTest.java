@@ -0,0 +1,124 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FileChangeFeedTest {
+
+    Path basePath = Paths.get(System.getProperty("java.io.tmpdir") + "/changeFeedTest");
+    BlockingQueue<FileChangeEvent> events = new LinkedBlockingQueue<FileChangeEvent>();
+    FileChangeFeed feed;
+
+    @Before
+    public void doBefore() throws Exception {
+        FileUtils.delete(basePath, false);
+        FileUtils.writeFile(basePath.resolve("global_sku/score/en_gb/sku1"), "test".getBytes(), true, true);
+        feed = new FileChangeFeed(basePath).withCoalesceMillis(100).subscribe(new FileChangeFeed.Listener() {
+            @Override
+            public void onChange(FileChangeEvent event) {
+                events.add(event);
+            }
+        }).start();
+    }
+
+    @After
+    public void doAfter() {
+        feed.close();
+        FileUtils.delete(basePath, false);
+    }
+
+    @Test
+    public void publishesCreatedModifiedAndDeletedFiles() throws Exception {
+        FileUtils.writeFile(basePath.resolve("global_sku/score/en_gb/sku2"), "test".getBytes(), true, true);
+        FileChangeEvent created = events.poll(5, TimeUnit.SECONDS);
+        assertEquals(FileChangeEvent.Kind.CREATED, created.getKind());
+        assertEquals(new URNImpl("urn:global_sku:score:en_gb:sku2"), created.getUrn());
+
+        Files.write(basePath.resolve("global_sku/score/en_gb/sku1"), "changed".getBytes());
+        FileChangeEvent modified = events.poll(5, TimeUnit.SECONDS);
+        assertEquals(FileChangeEvent.Kind.MODIFIED, modified.getKind());
+        assertEquals(new URNImpl("urn:global_sku:score:en_gb:sku1"), modified.getUrn());
+        assertEquals(created.getSequence() + 1, modified.getSequence());
+
+        Files.delete(basePath.resolve("global_sku/score/en_gb/sku2"));
+        FileChangeEvent deleted = events.poll(5, TimeUnit.SECONDS);
+        assertEquals(FileChangeEvent.Kind.DELETED, deleted.getKind());
+        assertFalse(deleted.isDirectory());
+        assertEquals(modified.getSequence() + 1, feed.getSequence());
+    }
+
+    @Test
+    public void registersNewFoldersRecursively() throws Exception {
+        FileUtils.writeFile(basePath.resolve("global_sku/score/fr_fr/sku1"), "test".getBytes(), true, true);
+        FileUtils.writeFile(basePath.resolve("global_sku/score/fr_fr/sku2"), "test".getBytes(), true, true);
+        assertEquals(2, collect(2).size());
+
+        FileUtils.writeFile(basePath.resolve("global_sku/score/fr_fr/sku3"), "test".getBytes(), true, true);
+        FileChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+        assertEquals(new URNImpl("urn:global_sku:score:fr_fr:sku3"), event.getUrn());
+        assertEquals(5, feed.getDirectoryCount());
+    }
+
+    @Test
+    public void coalescesBurstOfChanges() throws Exception {
+        Path path = basePath.resolve("global_sku/score/en_gb/sku2");
+        for (int i = 0; i < 10; i++) {
+            Files.write(path, ("test" + i).getBytes());
+        }
+        FileUtils.writeFile(basePath.resolve("global_sku/score/en_gb/temporary"), "test".getBytes(), true, true);
+        Files.delete(basePath.resolve("global_sku/score/en_gb/temporary"));
+
+        FileChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+        assertEquals(FileChangeEvent.Kind.CREATED, event.getKind());
+        assertEquals(new URNImpl("urn:global_sku:score:en_gb:sku2"), event.getUrn());
+        assertNull(events.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void publishesDeletedFolder() throws Exception {
+        FileUtils.delete(basePath.resolve("global_sku/score/en_gb"), false);
+
+        Map<String, FileChangeEvent> deleted = new HashMap<String, FileChangeEvent>();
+        for (FileChangeEvent event : collect(2)) {
+            assertEquals(FileChangeEvent.Kind.DELETED, event.getKind());
+            deleted.put(event.getUrn().toString(), event);
+        }
+        assertTrue(deleted.get("urn:global_sku:score:en_gb").isDirectory());
+        assertFalse(deleted.get("urn:global_sku:score:en_gb:sku1").isDirectory());
+        assertEquals(3, feed.getDirectoryCount());
+    }
+
+    @Test
+    public void skipsAtomicWriterTemporaryFiles() throws Exception {
+        FileUtils.writeFile(basePath.resolve("global_sku/score/en_gb/sku1"), java.nio.ByteBuffer.wrap("atomic".getBytes()), true, false, false);
+
+        FileChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+        assertEquals(new URNImpl("urn:global_sku:score:en_gb:sku1"), event.getUrn());
+        assertNull(events.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    private List<FileChangeEvent> collect(int count) throws InterruptedException {
+        List<FileChangeEvent> collected = new ArrayList<FileChangeEvent>();
+        while (collected.size() < count) {
+            FileChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull("Only " + collected + " are published", event);
+            collected.add(event);
+        }
+        return collected;
+    }
+}
@@ -0,0 +1,180 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.urn.URN;
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.Permission;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FileManifestTest {
+
+    Path basePath = Paths.get(System.getProperty("java.io.tmpdir") + "/manifestTest");
+    Path latest = basePath.resolve("global_sku/score/latest");
+    Path previous = basePath.resolve("global_sku/score/previous");
+
+    @Before
+    public void doBefore() {
+        FileUtils.delete(basePath, false);
+        for (int i = 0; i < 20; i++) {
+            FileUtils.writeFile(latest.resolve("en_gb/sku" + i), ("test" + i).getBytes(), true, true);
+            FileUtils.writeFile(latest.resolve("fr_fr/sku" + i), ("test" + i).getBytes(), true, true);
+        }
+    }
+
+    @After
+    public void doAfter() {
+        System.setSecurityManager(null);
+        FileUtils.delete(basePath, false);
+    }
+
+    @Test
+    public void updateRehashesOnlyChangedFiles() throws Exception {
+        FileManifest first = FileManifest.update(latest);
+        assertEquals(40, first.getFileCount());
+        assertEquals(40, first.getHashedCount());
+        assertTrue(Files.exists(basePath.resolve("global_sku/score/.latest.manifest")));
+
+        Path changed = latest.resolve("en_gb/sku3");
+        FileUtils.writeFile(changed, "changed".getBytes(), true, true);
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        FileManifest second = FileManifest.update(latest);
+
+        assertEquals(1, second.getHashedCount());
+        assertEquals(39, second.getReusedCount());
+        assertEquals(first.getHash("fr_fr"), second.getHash("fr_fr"));
+        assertNotEquals(first.getHash("en_gb"), second.getHash("en_gb"));
+        assertNotEquals(first.getHash(), second.getHash());
+    }
+
+    @Test
+    public void scanAfterSaveSkipsManifest() throws Exception {
+        FileManifest.update(latest).save();
+
+        final Set<String> urns = Collections.synchronizedSet(new HashSet<String>());
+        new URNRepositoryScanner(basePath).scan(new URNRepositoryScanner.Callback() {
+            @Override
+            public void onURN(URN urn) {
+                urns.add(urn.toString());
+            }
+        });
+
+        assertEquals(40, urns.size());
+        for (String urn : urns) {
+            assertTrue(urn, urn.startsWith("urn:global_sku:score:latest:"));
+        }
+    }
+
+    @Test
+    public void unreadableFolderKeepsPreviousEntries() throws Exception {
+        FileManifest first = FileManifest.update(latest);
+
+        // deny reading fr_fr, like a folder with wrong permissions
+        final String denied = latest.resolve("fr_fr").toString();
+        System.setSecurityManager(new SecurityManager() {
+            @Override
+            public void checkRead(String file) {
+                if (file.equals(denied))
+                    throw new SecurityException("Unable to read " + file);
+            }
+
+            @Override
+            public void checkPermission(Permission perm) {
+            }
+        });
+        FileManifest second = FileManifest.update(latest);
+        System.setSecurityManager(null);
+
+        assertEquals(1, second.getFailedCount());
+        assertEquals(40, second.getFileCount());
+        assertEquals(first.getHash(), second.getHash());
+        assertTrue(ManifestDiff.compare(first, FileManifest.load(latest), basePath).isEmpty());
+    }
+
+    @Test
+    public void loadSavedManifest() throws Exception {
+        FileManifest built = FileManifest.update(latest);
+        FileManifest loaded = FileManifest.load(latest);
+
+        assertNotNull(loaded);
+        assertEquals(built.getHash(), loaded.getHash());
+        assertEquals(built.getHash("en_gb/sku1"), loaded.getHash("en_gb/sku1"));
+        assertEquals(40, loaded.getFileCount());
+        assertNull(loaded.getHash("de_de"));
+    }
+
+    @Test
+    public void loadMissingOrCorruptManifest() throws Exception {
+        assertNull(FileManifest.load(latest));
+
+        FileUtils.writeFile(FileManifest.getManifestPath(latest), "corrupt".getBytes(), true, true);
+        assertNull(FileManifest.load(latest));
+    }
+
+    @Test
+    public void sameContentHasSameHash() throws Exception {
+        FileUtils.copy(latest, previous, 2);
+
+        FileManifest older = FileManifest.build(previous, null);
+        FileManifest newer = FileManifest.build(latest, older);
+
+        assertEquals(older.getHash(), newer.getHash());
+        assertEquals(newer.getHash("en_gb/sku0"), newer.getHash("fr_fr/sku0"));
+        assertNotEquals(newer.getHash("en_gb"), newer.getHash("fr_fr/sku0"));
+    }
+
+    @Test
+    public void diffSkipsIdenticalFolders() throws Exception {
+        FileUtils.copy(latest, previous, 2);
+        FileUtils.writeFile(latest.resolve("en_gb/sku1"), "changed".getBytes(), true, true);
+        FileUtils.writeFile(latest.resolve("de_de/sku1"), "added".getBytes(), true, true);
+        Files.delete(latest.resolve("en_gb/sku2"));
+
+        ManifestDiff diff = ManifestDiff.compare(FileManifest.build(previous, null), FileManifest.build(latest, null), basePath);
+
+        assertEquals(Arrays.asList(urn("urn:global_sku:score:latest:de_de:sku1")), diff.getAdded());
+        assertEquals(Arrays.asList(urn("urn:global_sku:score:latest:en_gb:sku1")), diff.getChanged());
+        assertEquals(Arrays.asList(urn("urn:global_sku:score:previous:en_gb:sku2")), diff.getRemoved());
+        assertEquals(1, diff.getSkippedFolderCount());
+        assertFalse(diff.isEmpty());
+    }
+
+    @Test
+    public void diffOfFolderReplacedByFile() throws Exception {
+        FileManifest older = FileManifest.build(latest, null);
+        FileUtils.delete(latest.resolve("fr_fr"), false);
+        FileUtils.writeFile(latest.resolve("fr_fr"), "file".getBytes(), true, true);
+        FileManifest newer = FileManifest.build(latest, older);
+
+        ManifestDiff diff = ManifestDiff.compare(older, newer, basePath);
+
+        assertEquals(Arrays.asList(urn("urn:global_sku:score:latest:fr_fr")), diff.getAdded());
+        assertEquals(20, new HashSet<URN>(diff.getRemoved()).size());
+        assertTrue(diff.getChanged().isEmpty());
+    }
+
+    @Test
+    public void diffOfSameManifest() throws Exception {
+        FileManifest manifest = FileManifest.build(latest, null);
+
+        ManifestDiff diff = ManifestDiff.compare(manifest, manifest, basePath);
+
+        assertTrue(diff.isEmpty());
+        assertEquals(1, diff.getSkippedFolderCount());
+    }
+
+    private static URN urn(String urn) throws Exception {
+        return new URNImpl(urn);
+    }
+}
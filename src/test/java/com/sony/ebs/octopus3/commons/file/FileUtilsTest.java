@@ -6,19 +6,40 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.security.Permission;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertEquals;
@@ -79,6 +100,125 @@ public class FileUtilsTest {
         assertFalse(FileUtils.writeFile(basePath, "test".getBytes(), true, true));
     }
 
+    @Test
+    public void writeFile_inPlace() throws Exception {
+        FileUtils.writeFile(filePath1, "test".getBytes(), true, true);
+        Files.setPosixFilePermissions(filePath1, PosixFilePermissions.fromString("rw-rw-rw-"));
+        Files.createSymbolicLink(filePath2, filePath1.getFileName());
+        Object fileKey = Files.readAttributes(filePath1, BasicFileAttributes.class).fileKey();
+
+        assertTrue(FileUtils.writeFile(filePath2, "other".getBytes(), true, true));
+
+        // written through the link into the same file, which keeps its permissions
+        assertTrue(Files.isSymbolicLink(filePath2));
+        assertEquals("other", new String(Files.readAllBytes(filePath1)));
+        assertEquals(fileKey, Files.readAttributes(filePath1, BasicFileAttributes.class).fileKey());
+        assertEquals(PosixFilePermissions.fromString("rw-rw-rw-"), Files.getPosixFilePermissions(filePath1));
+    }
+
+    @Test
+    public void writeFile_atomic_byteBuffer() throws Exception {
+        ByteBuffer content = ByteBuffer.wrap("xxtestxx".getBytes(), 2, 4);
+        assertTrue(FileUtils.writeFile(filePath1, content, true, true, true));
+
+        assertEquals("test", new String(Files.readAllBytes(filePath1)));
+        assertEquals(2, content.position());
+        assertEquals(1, basePath.toFile().list().length);
+    }
+
+    @Test
+    public void writeFile_atomic_inputStream() throws Exception {
+        byte[] large = StringUtils.repeat("0123456789", 100000).getBytes();
+        assertTrue(FileUtils.writeFile(filePath1, new ByteArrayInputStream(large), true, true, false));
+        assertArrayEquals(large, Files.readAllBytes(filePath1));
+
+        assertTrue(FileUtils.writeFile(filePath1, new ByteArrayInputStream("test".getBytes()), true, true, true));
+        assertEquals("test", new String(Files.readAllBytes(filePath1)));
+    }
+
+    @Test
+    public void writeFile_atomic_fileChannel() throws Exception {
+        FileUtils.writeFile(filePath1, "skip-test".getBytes(), true, true);
+        try (FileChannel channel = FileChannel.open(filePath1)) {
+            channel.position(5);
+            assertTrue(FileUtils.writeFile(filePath2, channel, true, true, true));
+            assertEquals(9, channel.position());
+        }
+        assertEquals("test", new String(Files.readAllBytes(filePath2)));
+    }
+
+    @Test
+    public void writeFile_atomic_permissions() throws Exception {
+        Files.createDirectories(basePath);
+        Files.write(filePath2, "test".getBytes());
+        assertTrue(FileUtils.writeFile(filePath1, ByteBuffer.wrap("test".getBytes()), true, true, false));
+
+        // temporary files are not created owner only, the umask applies like it does to direct writes
+        assertEquals(Files.getPosixFilePermissions(filePath2), Files.getPosixFilePermissions(filePath1));
+    }
+
+    @Test
+    public void writeFile_atomic_unableToWrite() throws Exception {
+        assertFalse(FileUtils.writeFile(filePath1, ByteBuffer.wrap("test".getBytes()), true, false, false));
+
+        assertTrue(FileUtils.writeFile(filePath1, ByteBuffer.wrap("test".getBytes()), true, true, false));
+        assertFalse(FileUtils.writeFile(filePath1, ByteBuffer.wrap("other".getBytes()), false, true, false));
+        assertEquals("test", new String(Files.readAllBytes(filePath1)));
+
+        // basePath is a directory now
+        assertFalse(FileUtils.writeFile(basePath, new ByteArrayInputStream("test".getBytes()), true, true, false));
+        assertEquals(1, basePath.toFile().list().length);
+    }
+
+    @Test
+    public void readFile_pooled() throws Exception {
+        FileUtils.writeFile(filePath1, "test".getBytes(), true, true);
+
+        ByteBuffer buffer;
+        try (FileBuffer content = FileUtils.readFile(filePath1)) {
+            assertFalse(content.isMapped());
+            buffer = content.getBuffer();
+            assertTrue(buffer.isReadOnly());
+            assertTrue(buffer.isDirect());
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            assertEquals("test", new String(bytes));
+        }
+        int pooled = DirectBufferPool.SHARED.getPooled();
+        assertTrue(pooled > 0);
+        FileUtils.readFile(filePath1).close();
+        assertEquals(pooled, DirectBufferPool.SHARED.getPooled());
+    }
+
+    @Test
+    public void readFile_mapped() throws Exception {
+        byte[] large = new byte[FileBuffer.MAP_THRESHOLD + 1];
+        new Random(7).nextBytes(large);
+        FileUtils.writeFile(filePath1, large, true, true);
+
+        try (FileBuffer content = FileUtils.readFile(filePath1)) {
+            assertTrue(content.isMapped());
+            ByteBuffer buffer = content.getBuffer();
+            assertTrue(buffer.isReadOnly());
+            assertEquals(ByteBuffer.wrap(large), buffer);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readFile_missingFile() throws Exception {
+        FileUtils.readFile(filePath1);
+    }
+
+    @Test
+    public void transferFile() throws Exception {
+        byte[] large = StringUtils.repeat("0123456789", 100000).getBytes();
+        FileUtils.writeFile(filePath1, large, true, true);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(large.length, FileUtils.transferFile(filePath1, Channels.newChannel(out)));
+        assertArrayEquals(large, out.toByteArray());
+    }
+
     @Test
     public void deleteDirectory() throws Exception {
         FileUtils.writeFile(filePath1, "test".getBytes(), true, true);
@@ -196,6 +336,118 @@ public class FileUtilsTest {
         assertTrue(result.getFailed().isEmpty());
     }
 
+    @Test
+    public void deleteDirectory_parallel() throws Exception {
+        List<Path> files = new ArrayList<Path>();
+        for (int i = 0; i < 600; i++) {
+            files.add(Paths.get(basePath + "/d" + (i % 3) + "/e" + (i % 2) + "/file" + i + ".txt"));
+        }
+        files.add(filePath1);
+        for (Path file : files) {
+            FileUtils.writeFile(file, "test".getBytes(), true, true);
+        }
+
+        FileOperationResult result = FileUtils.delete(basePath, true, new ForkJoinPool(4));
+
+        assertFalse(basePath.toFile().exists());
+        assertEquals(files.size(), result.getTracked().size());
+        assertTrue(result.getTracked().containsAll(files));
+        assertTrue(result.getFailed().isEmpty());
+    }
+
+    @Test
+    public void deleteFile_parallel() throws Exception {
+        FileUtils.writeFile(filePath1, "test".getBytes(), true, true);
+
+        FileOperationResult result = FileUtils.delete(filePath1, false, new ForkJoinPool(2));
+
+        assertEquals(Arrays.asList(filePath1), result.getTracked());
+        assertTrue(basePath.toFile().exists());
+        assertFalse(filePath1.toFile().exists());
+    }
+
+    @Test
+    public void deleteDirectory_parallel_missingFolder() throws Exception {
+        FileOperationResult result = FileUtils.delete(basePath, false, new ForkJoinPool(2));
+        assertEquals("File/folder in path [" + basePath + "] is not found", result.getMessage());
+
+        result = FileUtils.delete(basePath, true, new ForkJoinPool(2));
+        assertEquals("Unable to walk in directory [" + basePath + "] due to errors", result.getMessage());
+        assertTrue(result.getTracked().isEmpty());
+    }
+
+    @Test
+    public void deleteDirectory_parallel_securityIssuesOnOneFile() {
+        FileUtils.writeFile(filePath1, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath2, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath4, "test".getBytes(), true, true);
+
+        // disable delete permissions for filePath4
+        System.setSecurityManager(new SecurityManager() {
+            @Override
+            public void checkDelete(String file) {
+                if (file.equals(filePath4.toString()))
+                    throw new SecurityException("Unable to delete " + file);
+            }
+
+            @Override
+            public void checkPermission(Permission perm) {
+            }
+        });
+        FileOperationResult result = FileUtils.delete(basePath, true, new ForkJoinPool(4));
+
+        assertTrue(filePath4.toFile().exists());
+        assertFalse(filePath1.toFile().exists());
+        assertFalse(filePath2.toFile().exists());
+
+        assertEquals(2, result.getTracked().size());
+        assertEquals(Arrays.asList(filePath4), result.getFailed());
+    }
+
+    @Test
+    public void deleteDirectory_counting() throws Exception {
+        FileUtils.writeFile(filePath1, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath4, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath5, "test".getBytes(), true, true);
+        final List<Path> streamed = Collections.synchronizedList(new ArrayList<Path>());
+
+        FileOperationResult result = FileUtils.delete(basePath, true, new ForkJoinPool(2),
+                FileOperationResult.counting(new FileOperationListener() {
+                    @Override
+                    public void onTracked(Path path) {
+                        streamed.add(path);
+                    }
+
+                    @Override
+                    public void onFailed(Path path) {
+                        fail("Unexpected failure of " + path);
+                    }
+                }));
+
+        assertFalse(basePath.toFile().exists());
+        assertFalse(result.isKeepingPaths());
+        assertTrue(result.getTracked().isEmpty());
+        assertEquals(3, result.getTrackedCount());
+        assertEquals(0, result.getFailedCount());
+        assertEquals(3, streamed.size());
+        assertTrue(streamed.containsAll(Arrays.asList(filePath1, filePath4, filePath5)));
+    }
+
+    @Test
+    public void sync_counting() throws Exception {
+        FileUtils.writeFile(filePath7, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath8, "test".getBytes(), true, true);
+        FileUtils.writeFile(Paths.get(filePath9 + "/extra.txt"), "test".getBytes(), true, true);
+
+        FileOperationResult result = FileUtils.sync(filePath6, filePath9, 2, false, true, FileOperationResult.counting());
+
+        assertEquals(2, result.getTrackedCount());
+        assertEquals(1, result.getDeletedCount());
+        assertEquals(8, result.getBytes());
+        assertTrue(result.getTracked().isEmpty());
+        assertTrue(result.getDeleted().isEmpty());
+    }
+
     @Test
     public void zipDirectory() throws IOException {
         FileUtils.writeFile(filePath1, "test".getBytes(), true, true);
@@ -253,6 +505,189 @@ public class FileUtilsTest {
         validateZip(zipPath, Arrays.asList("d/", "d/e/", "d/e/file5.txt", "d/file4.txt", "file1.txt", "file2.txt"));
     }
 
+    @Test
+    public void zipStructure_parallel() throws IOException {
+        FileUtils.writeFile(filePath1, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath4, StringUtils.repeat("compressible ", 1000).getBytes(), true, true);
+        byte[] random = new byte[4096];
+        new Random(42).nextBytes(random);
+        Path randomPath = Paths.get(basePath + "/d/e/random.bin");
+        FileUtils.writeFile(randomPath, random, true, true);
+        Path imagePath = Paths.get(basePath + "/d/e/image.PNG");
+        FileUtils.writeFile(imagePath, StringUtils.repeat("png", 1000).getBytes(), true, true);
+
+        FileOperationResult result = FileUtils.zip(zipPath, basePath, 2, 9);
+
+        assertEquals(4, result.getTracked().size());
+        assertTrue(result.getTracked().containsAll(Arrays.asList(filePath1, filePath4, randomPath, imagePath)));
+        assertEquals(4 + 13000 + 4096 + 3000, result.getBytes());
+        validateZip(zipPath, Arrays.asList("d/", "d/e/", "d/e/random.bin", "d/e/image.PNG", "d/file4.txt", "file1.txt"));
+
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("d/file4.txt").getMethod());
+            assertTrue(zipFile.getEntry("d/file4.txt").getCompressedSize() < 13000);
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("d/e/random.bin").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("d/e/image.PNG").getMethod());
+            assertTrue(zipFile.getEntry("d/").isDirectory());
+            assertArrayEquals(random, readEntry(zipFile, "d/e/random.bin"));
+            assertArrayEquals(Files.readAllBytes(filePath4), readEntry(zipFile, "d/file4.txt"));
+            assertEquals("test", new String(readEntry(zipFile, "file1.txt")));
+        }
+    }
+
+    @Test
+    public void zipFile_parallel_throttled() throws IOException {
+        FileUtils.writeFile(filePath1, new byte[512 * 1024], true, true);
+        long start = System.currentTimeMillis();
+
+        FileOperationResult result = FileUtils.zip(zipPath, filePath1, 2, 9, new IOThrottle(1024 * 1024), new FileOperationResult());
+
+        assertTrue(System.currentTimeMillis() - start >= 450);
+        assertEquals(Arrays.asList(filePath1), result.getTracked());
+        validateZip(zipPath, Arrays.asList("file1.txt"));
+    }
+
+    @Test
+    public void zipFile_parallel_largeFile() throws IOException {
+        byte[] large = StringUtils.repeat("0123456789", (int) (ParallelZipFileVisitor.IN_MEMORY_LIMIT / 10) + 1000).getBytes();
+        FileUtils.writeFile(filePath1, large, true, true);
+
+        FileOperationResult result = FileUtils.zip(zipPath, filePath1, 1, -1);
+
+        assertEquals(Arrays.asList(filePath1), result.getTracked());
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertEquals(1, zipFile.size());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("file1.txt").getMethod());
+            assertArrayEquals(large, readEntry(zipFile, "file1.txt"));
+        }
+    }
+
+    @Test
+    public void zipFile_parallel_noFilesToZip() throws IOException {
+        FileOperationResult result = FileUtils.zip(zipPath, filePath1, 2, 6);
+
+        assertFalse(zipPath.toFile().exists());
+        assertEquals(0, result.getTracked().size());
+    }
+
+    @Test
+    public void unzip() throws IOException {
+        FileUtils.writeFile(filePath7, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath8, "test8".getBytes(), true, true);
+        Files.createDirectories(Paths.get(filePath6 + "/empty"));
+        FileUtils.zip(zipPath, filePath6, 2, 6);
+
+        FileOperationResult result = FileUtils.unzip(zipPath, filePath9, 2, true);
+
+        Path target7 = Paths.get(filePath9 + "/file7.txt");
+        Path target8 = Paths.get(filePath9 + "/f/file8.txt");
+        assertEquals(2, result.getTracked().size());
+        assertTrue(result.getTracked().containsAll(Arrays.asList(target7, target8)));
+        assertTrue(result.getFailed().isEmpty());
+        assertEquals(9, result.getBytes());
+        assertEquals("test8", new String(Files.readAllBytes(target8)));
+        assertTrue(Files.isDirectory(Paths.get(filePath9 + "/empty")));
+
+        FileUtils.writeFile(target7, "changed".getBytes(), true, true);
+        result = FileUtils.unzip(zipPath, filePath9, 2, false);
+        assertTrue(result.getTracked().isEmpty());
+        assertEquals(2, result.getSkippedCount());
+        assertEquals("changed", new String(Files.readAllBytes(target7)));
+    }
+
+    @Test
+    public void unzip_entryOutsideOfTarget() throws IOException {
+        Files.createDirectories(basePath);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipPath))) {
+            out.putNextEntry(new ZipEntry("../../evil.txt"));
+            out.write("evil".getBytes());
+            out.putNextEntry(new ZipEntry("good.txt"));
+            out.write("good".getBytes());
+        }
+
+        FileOperationResult result = FileUtils.unzip(zipPath, filePath9, 2, true);
+
+        assertEquals(Arrays.asList(Paths.get(filePath9 + "/good.txt")), result.getTracked());
+        assertEquals(Arrays.asList(Paths.get(basePath + "/evil.txt")), result.getFailed());
+        assertFalse(Paths.get(basePath + "/evil.txt").toFile().exists());
+    }
+
+    @Test
+    public void unzip_missingZip() {
+        FileOperationResult result = FileUtils.unzip(zipPath, filePath9, 2, true);
+
+        assertTrue(result.getTracked().isEmpty());
+        assertEquals("Unable to extract zip file [" + zipPath + "] to path [" + filePath9 + "] due to errors", result.getMessage());
+    }
+
+    @Test
+    public void copyAsync_reportsProgress() throws Exception {
+        FileUtils.writeFile(filePath7, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath8, "test8".getBytes(), true, true);
+        final AtomicInteger files = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+
+        FileOperationResult result = FileUtils.copyAsync(filePath6, filePath9, 2, (path, processed, processedBytes) -> {
+            files.incrementAndGet();
+            bytes.accumulateAndGet(processedBytes, Math::max);
+        }).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, result.getTracked().size());
+        assertEquals(2, files.get());
+        assertEquals(9, bytes.get());
+        assertTrue(Paths.get(filePath9 + "/f/file8.txt").toFile().exists());
+    }
+
+    @Test
+    public void deleteAsync_cancel() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            FileUtils.writeFile(Paths.get(basePath + "/file" + i + ".txt"), "test".getBytes(), true, true);
+        }
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final CountDownLatch resumed = new CountDownLatch(1);
+
+        CompletableFuture<FileOperationResult> future = FileUtils.deleteAsync(basePath, true, (path, processed, processedBytes) -> {
+            started.countDown();
+            try {
+                cancelled.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            resumed.countDown();
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(future.cancel(true));
+        cancelled.countDown();
+
+        try {
+            future.get();
+            fail("Cancelled deletion should not complete");
+        } catch (CancellationException e) {
+            // expected
+        }
+        // the deletion checks cancellation before the next file, right after the callback returns
+        assertTrue(resumed.await(10, TimeUnit.SECONDS));
+        assertEquals(49, basePath.toFile().list().length);
+    }
+
+    @Test
+    public void zipAsync_and_writeFileAsync() throws Exception {
+        FileOperationResult written = FileUtils.writeFileAsync(filePath1, ByteBuffer.wrap("test".getBytes()), true, true,
+                false, null).get(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(filePath1), written.getTracked());
+        assertEquals(4, written.getBytes());
+
+        written = FileUtils.writeFileAsync(filePath1, ByteBuffer.wrap("other".getBytes()), false, true,
+                false, null).get(10, TimeUnit.SECONDS);
+        assertEquals(1, written.getSkippedCount());
+        assertEquals(0, written.getFailedCount());
+
+        FileOperationResult result = FileUtils.zipAsync(zipPath, basePath, 2, 6, null).get(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(filePath1), result.getTracked());
+        validateZip(zipPath, Arrays.asList("file1.txt"));
+    }
+
     @Test(expected = InstantiationException.class)
     public void utilityClassCheck() throws Throwable {
         try {
@@ -299,6 +734,149 @@ public class FileUtilsTest {
         assertEquals(StringUtils.join(Files.readAllLines(filePath10, Charset.forName("UTF-8")), ""), "test");
     }
 
+    @Test
+    public void copyFolderToFolder_parallel() throws IOException {
+        FileUtils.writeFile(filePath7, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath8, "test".getBytes(), true, true);
+        byte[] large = new byte[(int) ParallelCopyFileVisitor.TRANSFER_THRESHOLD + 17];
+        Arrays.fill(large, (byte) 7);
+        Path largePath = Paths.get(filePath6 + "/f/large.bin");
+        FileUtils.writeFile(largePath, large, true, true);
+        Files.createDirectories(Paths.get(filePath6 + "/empty"));
+
+        FileOperationResult result = FileUtils.copy(filePath6, filePath9, 3);
+
+        assertEquals(3, result.getTracked().size());
+        assertTrue(result.getTracked().containsAll(Arrays.asList(filePath7, filePath8, largePath)));
+        assertTrue(result.getFailed().isEmpty());
+        assertEquals(8 + large.length, result.getBytes());
+        assertTrue(result.getElapsedTime() >= 0);
+
+        assertEquals("test", new String(Files.readAllBytes(Paths.get(filePath9 + "/file7.txt"))));
+        assertEquals("test", new String(Files.readAllBytes(Paths.get(filePath9 + "/f/file8.txt"))));
+        assertArrayEquals(large, Files.readAllBytes(Paths.get(filePath9 + "/f/large.bin")));
+        assertTrue(Files.isDirectory(Paths.get(filePath9 + "/empty")));
+    }
+
+    @Test
+    public void copyFileToFolder_parallel_overrideExistingFile() throws IOException {
+        FileUtils.writeFile(filePath7, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath10, "test1".getBytes(), true, true);
+
+        FileOperationResult result = FileUtils.copy(filePath7, filePath9, 2);
+
+        assertEquals(Arrays.asList(filePath7), result.getTracked());
+        assertEquals("test", new String(Files.readAllBytes(filePath10)));
+    }
+
+    @Test
+    public void copy_parallel_missingSource() {
+        FileOperationResult result = FileUtils.copy(filePath6, filePath9, 2);
+
+        assertTrue(result.getTracked().isEmpty());
+        assertEquals(Arrays.asList(filePath6), result.getFailed());
+    }
+
+    @Test
+    public void sync_skipsUnchangedFiles() throws IOException {
+        FileUtils.writeFile(filePath7, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath8, "test".getBytes(), true, true);
+
+        FileOperationResult result = FileUtils.sync(filePath6, filePath9, 2, false, false);
+        assertEquals(2, result.getTracked().size());
+        assertEquals(0, result.getSkippedCount());
+
+        FileUtils.writeFile(filePath8, "test2".getBytes(), true, true);
+        result = FileUtils.sync(filePath6, filePath9, 2, false, false);
+        assertEquals(Arrays.asList(filePath8), result.getTracked());
+        assertEquals(1, result.getSkippedCount());
+        assertEquals(5, result.getBytes());
+        assertEquals("test2", new String(Files.readAllBytes(Paths.get(filePath9 + "/f/file8.txt"))));
+    }
+
+    @Test
+    public void sync_comparesContent() throws IOException {
+        FileUtils.writeFile(filePath7, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath8, "test".getBytes(), true, true);
+        FileUtils.sync(filePath6, filePath9, 2, true, false);
+
+        // same size and modification time, different content
+        Path target8 = Paths.get(filePath9 + "/f/file8.txt");
+        FileTime time = Files.getLastModifiedTime(target8);
+        FileUtils.writeFile(target8, "TEST".getBytes(), true, true);
+        Files.setLastModifiedTime(target8, time);
+        // same content, different modification time
+        Files.setLastModifiedTime(filePath7, FileTime.fromMillis(time.toMillis() - 60000));
+
+        FileOperationResult result = FileUtils.sync(filePath6, filePath9, 2, false, false);
+        assertEquals(Arrays.asList(filePath7), result.getTracked());
+        assertEquals(1, result.getSkippedCount());
+        assertEquals("TEST", new String(Files.readAllBytes(target8)));
+
+        result = FileUtils.sync(filePath6, filePath9, 2, true, false);
+        assertEquals(Arrays.asList(filePath8), result.getTracked());
+        assertEquals(1, result.getSkippedCount());
+        assertEquals("test", new String(Files.readAllBytes(target8)));
+    }
+
+    @Test
+    public void sync_deletesExtraneousFiles() throws IOException {
+        FileUtils.writeFile(filePath7, "test".getBytes(), true, true);
+        FileUtils.writeFile(filePath8, "test".getBytes(), true, true);
+        Path extraFile = Paths.get(filePath9 + "/extra.txt");
+        Path extraFolderFile = Paths.get(filePath9 + "/extra/file.txt");
+        Path fileInsteadOfFolder = Paths.get(filePath9 + "/f");
+        FileUtils.writeFile(extraFile, "test".getBytes(), true, true);
+        FileUtils.writeFile(extraFolderFile, "test".getBytes(), true, true);
+        FileUtils.writeFile(fileInsteadOfFolder, "test".getBytes(), true, true);
+
+        FileOperationResult result = FileUtils.sync(filePath6, filePath9, 2, false, false);
+        assertTrue(extraFile.toFile().exists());
+        assertEquals(Arrays.asList(filePath8.getParent()), result.getFailed());
+
+        result = FileUtils.sync(filePath6, filePath9, 2, false, true);
+        assertEquals(3, result.getDeleted().size());
+        assertTrue(result.getDeleted().containsAll(Arrays.asList(extraFile, extraFolderFile, fileInsteadOfFolder)));
+        assertFalse(extraFile.toFile().exists());
+        assertFalse(extraFolderFile.getParent().toFile().exists());
+        assertEquals("test", new String(Files.readAllBytes(Paths.get(filePath9 + "/f/file8.txt"))));
+        assertEquals(1, result.getSkippedCount());
+        assertEquals(Arrays.asList(filePath8), result.getTracked());
+    }
+
+    @Test
+    public void writeFilesGroupedByFolder() throws IOException {
+        Map<Path, ByteBuffer> files = new LinkedHashMap<Path, ByteBuffer>();
+        for (int i = 0; i < 150; i++) {
+            files.put(basePath.resolve("w/" + (i % 3) + "/file" + i), ByteBuffer.wrap(("content" + i).getBytes()));
+        }
+
+        FileOperationResult result = FileUtils.writeFiles(files, true, true, true, 4);
+
+        assertEquals(150, result.getTrackedCount());
+        assertEquals(0, result.getFailedCount());
+        assertEquals("content149", new String(Files.readAllBytes(basePath.resolve("w/2/file149"))));
+        assertEquals(3, basePath.resolve("w").toFile().list().length);
+        assertEquals(50, basePath.resolve("w/0").toFile().list().length);
+    }
+
+    @Test
+    public void writeFilesWithoutOverride() throws IOException {
+        FileUtils.writeFile(basePath.resolve("w/existing"), "old".getBytes(), true, true);
+        Map<Path, ByteBuffer> files = new LinkedHashMap<Path, ByteBuffer>();
+        files.put(basePath.resolve("w/existing"), ByteBuffer.wrap("new".getBytes()));
+        files.put(basePath.resolve("w/new"), ByteBuffer.wrap("new".getBytes()));
+        files.put(basePath.resolve("missing/new"), ByteBuffer.wrap("new".getBytes()));
+
+        FileOperationResult result = FileUtils.writeFiles(files, false, false, false, 2);
+
+        assertEquals(Arrays.asList(basePath.resolve("w/new")), result.getTracked());
+        assertEquals(Arrays.asList(basePath.resolve("missing/new")), result.getFailed());
+        assertEquals(1, result.getSkippedCount());
+        assertEquals(3, result.getBytes());
+        assertEquals("old", new String(Files.readAllBytes(basePath.resolve("w/existing"))));
+    }
+
     private static void resetFilePermissions() {
         System.setSecurityManager(new SecurityManager() {
             @Override
@@ -311,6 +889,18 @@ public class FileUtilsTest {
         });
     }
 
+    private static byte[] readEntry(ZipFile zipFile, String name) throws IOException {
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
     private void validateZip(Path zipPath, List<String> content) throws IOException {
         byte[] zipFileBytes = Files.readAllBytes(zipPath);
         ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zipFileBytes));
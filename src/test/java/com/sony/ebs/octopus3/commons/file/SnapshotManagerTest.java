@@ -0,0 +1,201 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.flows.RepoValue;
+import com.sony.ebs.octopus3.commons.urn.URN;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.Permission;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+public class SnapshotManagerTest {
+
+    Path basePath = Paths.get(System.getProperty("java.io.tmpdir") + "/snapshotTest");
+    Path folder = basePath.resolve("global_sku/score");
+
+    @Before
+    public void doBefore() {
+        FileUtils.delete(basePath, false);
+    }
+
+    @After
+    public void doAfter() {
+        FileUtils.delete(basePath, false);
+    }
+
+    @Test
+    public void publishWithRenames() throws Exception {
+        SnapshotManager snapshots = new SnapshotManager(folder);
+
+        assertNull(publish(snapshots, "first").get(5, TimeUnit.SECONDS));
+        assertNull(publish(snapshots, "second").get(5, TimeUnit.SECONDS));
+        FileOperationResult deleted = publish(snapshots, "third").get(5, TimeUnit.SECONDS);
+
+        assertEquals("third", read(folder.resolve("latest/en_gb/sku1")));
+        assertEquals("second", read(folder.resolve("previous/en_gb/sku1")));
+        assertFalse(Files.isSymbolicLink(folder.resolve("latest")));
+        assertEquals(1, deleted.getTrackedCount());
+        assertArchived("first");
+        assertEquals(0, folder.resolve(".snapshots/retired").toFile().list().length);
+        assertEquals(0, folder.resolve(".snapshots/staging").toFile().list().length);
+    }
+
+    @Test
+    public void publishWithLinks() throws Exception {
+        SnapshotManager snapshots = new SnapshotManager(folder, SnapshotManager.Mode.SYMLINK);
+
+        publish(snapshots, "first").get(5, TimeUnit.SECONDS);
+        publish(snapshots, "second").get(5, TimeUnit.SECONDS);
+        publish(snapshots, "third").get(5, TimeUnit.SECONDS);
+
+        assertTrue(Files.isSymbolicLink(folder.resolve("latest")));
+        assertEquals("third", read(folder.resolve("latest/en_gb/sku1")));
+        assertEquals("second", read(folder.resolve("previous/en_gb/sku1")));
+        assertEquals("third", read(snapshots.resolve(RepoValue.latest).resolve("en_gb/sku1")));
+        assertArchived("first");
+        assertEquals(2, folder.resolve(".snapshots/generations").toFile().list().length);
+    }
+
+    @Test
+    public void publishWithLinksOverRealFolders() throws Exception {
+        FileUtils.writeFile(folder.resolve("latest/en_gb/sku1"), "old".getBytes(), true, true);
+        SnapshotManager snapshots = new SnapshotManager(folder, SnapshotManager.Mode.SYMLINK);
+
+        publish(snapshots, "new").get(5, TimeUnit.SECONDS);
+
+        assertEquals("new", read(folder.resolve("latest/en_gb/sku1")));
+        assertEquals("old", read(folder.resolve("previous/en_gb/sku1")));
+        assertTrue(Files.isSymbolicLink(folder.resolve("previous")));
+    }
+
+    @Test
+    public void publishWithoutArchiving() throws Exception {
+        SnapshotManager snapshots = new SnapshotManager(folder).withArchiving(false);
+
+        publish(snapshots, "first");
+        publish(snapshots, "second");
+        publish(snapshots, "third").get(5, TimeUnit.SECONDS);
+
+        assertFalse(Files.exists(folder.resolve("archive")));
+        assertEquals(0, folder.resolve(".snapshots/retired").toFile().list().length);
+    }
+
+    @Test
+    public void scanAfterPublishSkipsSnapshotStore() throws Exception {
+        SnapshotManager snapshots = new SnapshotManager(folder).withArchiving(false);
+        publish(snapshots, "first");
+        publish(snapshots, "second").get(5, TimeUnit.SECONDS);
+        Path staging = snapshots.createStaging();
+        FileUtils.writeFile(staging.resolve("en_gb/sku2"), "staged".getBytes(), true, true);
+
+        final Set<String> urns = Collections.synchronizedSet(new TreeSet<String>());
+        new URNRepositoryScanner(basePath).scan(new URNRepositoryScanner.Callback() {
+            @Override
+            public void onURN(URN urn) {
+                urns.add(urn.toString());
+            }
+        });
+
+        assertEquals(new TreeSet<String>(Arrays.asList("urn:global_sku:score:latest:en_gb:sku1",
+                "urn:global_sku:score:previous:en_gb:sku1")), urns);
+    }
+
+    @Test
+    public void publishWithStoreOutsideRepository() throws Exception {
+        Path store = basePath.resolve("store/global_sku/score");
+        SnapshotManager snapshots = new SnapshotManager(folder, store, SnapshotManager.Mode.SYMLINK);
+
+        publish(snapshots, "first").get(5, TimeUnit.SECONDS);
+        publish(snapshots, "second").get(5, TimeUnit.SECONDS);
+
+        assertEquals("second", read(folder.resolve("latest/en_gb/sku1")));
+        assertEquals("first", read(folder.resolve("previous/en_gb/sku1")));
+        assertTrue(snapshots.resolve(RepoValue.latest).startsWith(store.toRealPath()));
+        assertFalse(Files.exists(folder.resolve(SnapshotManager.SNAPSHOTS_FOLDER)));
+    }
+
+    @Test
+    public void publishKeepsSnapshotWhichCannotBeArchived() throws Exception {
+        SnapshotManager snapshots = new SnapshotManager(folder);
+        publish(snapshots, "first").get(5, TimeUnit.SECONDS);
+        publish(snapshots, "second").get(5, TimeUnit.SECONDS);
+        Path staging = snapshots.createStaging();
+        FileUtils.writeFile(staging.resolve("en_gb/sku1"), "third".getBytes(), true, true);
+
+        System.setSecurityManager(new SecurityManager() {
+            @Override
+            public void checkRead(String file) {
+                if (file.contains("retired") && file.endsWith("sku1") && isZipping())
+                    throw new SecurityException("Unable to read " + file);
+            }
+
+            @Override
+            public void checkPermission(Permission perm) {
+            }
+        });
+        try {
+            snapshots.publish(staging).get(5, TimeUnit.SECONDS);
+            fail("Snapshot should not be archived");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        } finally {
+            System.setSecurityManager(null);
+        }
+
+        assertEquals("third", read(folder.resolve("latest/en_gb/sku1")));
+        assertEquals(0, folder.resolve("archive").toFile().list().length);
+        String[] retired = folder.resolve(".snapshots/retired").toFile().list();
+        assertEquals(1, retired.length);
+        assertEquals("first", read(folder.resolve(".snapshots/retired").resolve(retired[0]).resolve("en_gb/sku1")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void publishOtherFolder() throws Exception {
+        FileUtils.writeFile(basePath.resolve("other/sku1"), "test".getBytes(), true, true);
+        new SnapshotManager(folder).publish(basePath.resolve("other"));
+    }
+
+    private CompletableFuture<FileOperationResult> publish(SnapshotManager snapshots, String content) throws Exception {
+        Path staging = snapshots.createStaging();
+        FileUtils.writeFile(staging.resolve("en_gb/sku1"), content.getBytes(), true, true);
+        return snapshots.publish(staging);
+    }
+
+    private void assertArchived(String content) throws Exception {
+        String[] archives = folder.resolve("archive").toFile().list();
+        assertEquals(1, archives.length);
+        try (ZipFile zipFile = new ZipFile(folder.resolve("archive").resolve(archives[0]).toFile())) {
+            assertNotNull(zipFile.getEntry("en_gb/sku1"));
+            assertEquals(content.length(), zipFile.getEntry("en_gb/sku1").getSize());
+        }
+    }
+
+    /**
+     * Walkers skip files which cannot be read silently, so only reads of zip workers are denied
+     */
+    private static boolean isZipping() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            if (element.getClassName().endsWith("DeflateTask"))
+                return true;
+        }
+        return false;
+    }
+
+    private static String read(Path path) throws Exception {
+        return new String(Files.readAllBytes(path));
+    }
+}
@@ -0,0 +1,146 @@
+package com.sony.ebs.octopus3.commons.file;
+
+import com.sony.ebs.octopus3.commons.flows.RepoValue;
+import com.sony.ebs.octopus3.commons.urn.URN;
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.Permission;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class URNRepositoryScannerTest {
+
+    Path basePath = Paths.get(System.getProperty("java.io.tmpdir") + "/scannerTest");
+
+    @Before
+    public void doBefore() {
+        FileUtils.delete(basePath, false);
+        for (int i = 0; i < 50; i++) {
+            FileUtils.writeFile(basePath.resolve("global_sku/score/en_gb/sku" + i), "test".getBytes(), true, true);
+            FileUtils.writeFile(basePath.resolve("global_sku/score/fr_fr/sku" + i), "test".getBytes(), true, true);
+        }
+        FileUtils.writeFile(basePath.resolve("flix_sku/score/latest/a.xml"), "test".getBytes(), true, true);
+        FileUtils.writeFile(basePath.resolve("flix_sku/score/previous/a.xml"), "test".getBytes(), true, true);
+        FileUtils.writeFile(basePath.resolve("flix_sku/score/latest/not valid"), "test".getBytes(), true, true);
+    }
+
+    @After
+    public void doAfter() {
+        System.setSecurityManager(null);
+        FileUtils.delete(basePath, false);
+    }
+
+    @Test
+    public void scanWithCallback() {
+        final Set<URN> urns = Collections.newSetFromMap(new ConcurrentHashMap<URN, Boolean>());
+        URNRepositoryScanner scanner = new URNRepositoryScanner(basePath).withParallelism(4);
+        scanner.scan(new URNRepositoryScanner.Callback() {
+            @Override
+            public void onURN(URN urn) {
+                urns.add(urn);
+            }
+        });
+
+        assertEquals(102, urns.size());
+        assertEquals(102, scanner.getScannedCount());
+        assertEquals(1, scanner.getSkippedCount());
+        assertTrue(urns.contains(urn("urn:global_sku:score:en_gb:sku7")));
+        assertTrue(urns.contains(urn("urn:flix_sku:score:latest:a.xml")));
+    }
+
+    @Test
+    public void scanSkipsEntryDeletedWhileListing() {
+        final Path vanishing = basePath.resolve("global_sku/score/en_gb/sku3");
+        final AtomicBoolean deleted = new AtomicBoolean();
+
+        // delete the file right before its attributes are read, like a concurrent delete
+        System.setSecurityManager(new SecurityManager() {
+            @Override
+            public void checkRead(String file) {
+                if (file.equals(vanishing.toString()) && deleted.compareAndSet(false, true)) {
+                    vanishing.toFile().delete();
+                }
+            }
+
+            @Override
+            public void checkPermission(Permission perm) {
+            }
+        });
+        final Set<URN> urns = Collections.newSetFromMap(new ConcurrentHashMap<URN, Boolean>());
+        URNRepositoryScanner scanner = new URNRepositoryScanner(basePath).withType("global_sku");
+        scanner.scan(new URNRepositoryScanner.Callback() {
+            @Override
+            public void onURN(URN urn) {
+                urns.add(urn);
+            }
+        });
+        System.setSecurityManager(null);
+
+        assertTrue(deleted.get());
+        assertEquals(99, urns.size());
+        assertEquals(1, scanner.getSkippedCount());
+        assertFalse(urns.contains(urn("urn:global_sku:score:en_gb:sku3")));
+    }
+
+    @Test
+    public void scanWithIteratorAndPrefix() {
+        URNRepositoryScanner scanner = new URNRepositoryScanner(basePath)
+                .withPrefix(urn("urn:global_sku:score:fr_fr"))
+                .withQueueCapacity(4);
+        Set<URN> urns = new HashSet<URN>();
+        URNRepositoryScanner.ScanIterator iterator = scanner.iterator();
+        while (iterator.hasNext()) {
+            urns.add(iterator.next());
+        }
+
+        assertEquals(50, urns.size());
+        assertTrue(urns.contains(urn("urn:global_sku:score:fr_fr:sku0")));
+        assertFalse(urns.contains(urn("urn:global_sku:score:en_gb:sku0")));
+    }
+
+    @Test
+    public void scanWithTypeAndFolder() {
+        Set<URN> urns = new HashSet<URN>();
+        URNRepositoryScanner.ScanIterator iterator = new URNRepositoryScanner(basePath)
+                .withType("flix_sku")
+                .withFolder(RepoValue.latest)
+                .iterator();
+        while (iterator.hasNext()) {
+            urns.add(iterator.next());
+        }
+
+        assertEquals(Collections.singleton(urn("urn:flix_sku:score:latest:a.xml")), urns);
+    }
+
+    @Test
+    public void closeIteratorBeforeEnd() {
+        URNRepositoryScanner.ScanIterator iterator = new URNRepositoryScanner(basePath).withQueueCapacity(1).iterator();
+        assertTrue(iterator.hasNext());
+        assertNotNull(iterator.next());
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void scanMissingFolder() {
+        assertFalse(new URNRepositoryScanner(basePath).withType("sku").iterator().hasNext());
+    }
+
+    private static URN urn(String urnStr) {
+        try {
+            return new URNImpl(urnStr);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.sony.ebs.octopus3.commons.serialization;
+
+import com.sony.ebs.octopus3.commons.urn.URN;
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+
+/**
+ * Compares size and speed of {@link BinaryCodec} against Java serialization for URNs. It is not a unit test; run it
+ * from the IDE or with "java -cp ... BinaryCodecBenchmark [iterations]".
+ */
+public class BinaryCodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        URN urn = new URNImpl("urn:global_sku:score:en_gb:kdl-40w605");
+
+        byte[] binary = BinaryCodec.toBytes(urn);
+        byte[] java = BinaryCodecTest.javaSerialized(urn);
+        System.out.println("Size of [" + urn + "]: binary " + binary.length + " bytes, java " + java.length + " bytes");
+
+        // warm up both paths before measuring
+        run(urn, iterations / 10);
+        long[] times = run(urn, iterations);
+        System.out.println("Round trip of " + iterations + " URNs: binary " + times[0] / 1000000 + " ms, java "
+                + times[1] / 1000000 + " ms");
+    }
+
+    private static long[] run(URN urn, int iterations) throws Exception {
+        long start = System.nanoTime();
+        int hash = 0;
+        for (int i = 0; i < iterations; i++) {
+            hash += BinaryCodec.toURN(BinaryCodec.toBytes(urn)).hashCode();
+        }
+        long binary = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            byte[] bytes = BinaryCodecTest.javaSerialized(urn);
+            hash += new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject().hashCode();
+        }
+        long java = System.nanoTime() - start;
+
+        if (hash == 42) {
+            System.out.println();
+        }
+        return new long[]{binary, java};
+    }
+}
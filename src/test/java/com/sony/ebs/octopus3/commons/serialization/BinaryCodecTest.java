@@ -0,0 +1,129 @@
+package com.sony.ebs.octopus3.commons.serialization;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.nio.serialization.Data;
+import com.hazelcast.nio.serialization.SerializationService;
+import com.hazelcast.nio.serialization.SerializationServiceBuilder;
+import com.sony.ebs.octopus3.commons.flows.Delta;
+import com.sony.ebs.octopus3.commons.flows.FlowTypeEnum;
+import com.sony.ebs.octopus3.commons.flows.RepoValue;
+import com.sony.ebs.octopus3.commons.flows.ServiceTypeEnum;
+import com.sony.ebs.octopus3.commons.process.ProcessId;
+import com.sony.ebs.octopus3.commons.process.ProcessIdImpl;
+import com.sony.ebs.octopus3.commons.urn.URN;
+import com.sony.ebs.octopus3.commons.urn.URNImpl;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest {
+
+    @Test
+    public void urnRoundTrip() throws Exception {
+        URN urn = new URNImpl("urn:global_sku:score:en_gb:kdl-40w605");
+        byte[] bytes = BinaryCodec.toBytes(urn);
+
+        assertEquals(urn, BinaryCodec.toURN(bytes));
+        // section count and one length byte per section
+        assertEquals(1 + 4 + urn.toString().length() - 4 - 3, bytes.length);
+        assertTrue(bytes.length * 4 < javaSerialized(urn).length);
+    }
+
+    @Test
+    public void byteBufferRoundTrip() throws Exception {
+        URN urn = new URNImpl("urn:global_sku:score:en_gb:a");
+        ProcessId processId = new ProcessIdImpl("123");
+        Delta delta = delta();
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        BinaryCodec.write(buffer, urn);
+        BinaryCodec.write(buffer, processId);
+        BinaryCodec.write(buffer, delta);
+        buffer.flip();
+
+        assertEquals(urn, BinaryCodec.readURN(buffer));
+        assertEquals(processId, BinaryCodec.readProcessId(buffer));
+        assertDelta(delta, BinaryCodec.readDelta(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void deltaRoundTrip() throws Exception {
+        Delta delta = delta();
+        assertDelta(delta, BinaryCodec.toDelta(BinaryCodec.toBytes(delta)));
+
+        Delta empty = new Delta();
+        Delta read = BinaryCodec.toDelta(BinaryCodec.toBytes(empty));
+        assertNull(read.getProcessId());
+        assertNull(read.getFlow());
+        assertNull(read.getStatus());
+        assertNull(read.getPublication());
+    }
+
+    @Test
+    public void deltaWithObjectStatus() throws Exception {
+        Delta delta = delta();
+        delta.setStatus(Arrays.asList(1, 2, 3));
+        assertEquals(Arrays.asList(1, 2, 3), BinaryCodec.toDelta(BinaryCodec.toBytes(delta)).getStatus());
+    }
+
+    @Test(expected = IOException.class)
+    public void readURN_invalidContent() throws Exception {
+        BinaryCodec.toURN(new byte[]{1, 3, 's', 'k', 'u'});
+    }
+
+    @Test
+    public void hazelcastRoundTrip() throws Exception {
+        SerializationService service = new SerializationServiceBuilder()
+                .setConfig(HazelcastSerializers.register(new SerializationConfig()))
+                .build();
+
+        URN urn = new URNImpl("urn:global_sku:score:en_gb:a");
+        Data data = service.toData(urn);
+        assertEquals(URNStreamSerializer.TYPE_ID, data.getType());
+        assertEquals(urn, service.toObject(data));
+
+        ProcessId processId = new ProcessIdImpl("123");
+        assertEquals(processId, service.toObject(service.toData(processId)));
+
+        Delta delta = delta();
+        delta.setStatus(Arrays.asList(1, 2, 3));
+        Delta read = service.toObject(service.toData(delta));
+        assertDelta(delta, read);
+    }
+
+    static Delta delta() {
+        Delta delta = new Delta();
+        delta.setProcessId(new ProcessIdImpl("abc"));
+        delta.setFlow(FlowTypeEnum.FLIX);
+        delta.setService(ServiceTypeEnum.DELTA);
+        delta.setType(RepoValue.global_sku);
+        delta.setPublication("SCORE");
+        delta.setLocale("en_GB");
+        delta.setStatus("done");
+        delta.setUpload(true);
+        delta.setSdate("2014-10-20T00:00:00.000Z");
+        delta.setEdate(null);
+        return delta;
+    }
+
+    static byte[] javaSerialized(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream stream = new ObjectOutputStream(bytes);
+        stream.writeObject(object);
+        stream.close();
+        return bytes.toByteArray();
+    }
+
+    private static void assertDelta(Delta expected, Delta actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getStatus(), actual.getStatus());
+    }
+}
@@ -0,0 +1,107 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class SortedURNSetTest {
+
+    @Test
+    public void comparatorOrdersSectionBySection() throws URNCreationException {
+        List<URN> urns = Arrays.<URN>asList(
+                new URNImpl("urn:sku:a0"),
+                new URNImpl("urn:sku:a:b"),
+                new URNImpl("urn:sku:a"),
+                new URNImpl("urn:sku:a-b"),
+                new URNImpl("urn:sku0:a"));
+        Collections.sort(urns, URNComparator.INSTANCE);
+
+        assertEquals(Arrays.<URN>asList(
+                new URNImpl("urn:sku:a"),
+                new URNImpl("urn:sku:a:b"),
+                new URNImpl("urn:sku:a-b"),
+                new URNImpl("urn:sku:a0"),
+                new URNImpl("urn:sku0:a")), urns);
+    }
+
+    @Test
+    public void bulkSortMatchesComparator() throws URNCreationException {
+        Random random = new Random(7);
+        List<URN> urns = new ArrayList<URN>();
+        for (int i = 0; i < 20000; i++) {
+            urns.add(new URNImpl("urn:global_sku:" + randomSection(random) + ":" + randomSection(random)
+                    + (random.nextBoolean() ? ":" + randomSection(random) : "")));
+        }
+        SortedURNSet set = SortedURNSet.of(urns);
+        TreeSet<URN> expected = new TreeSet<URN>(URNComparator.INSTANCE);
+        expected.addAll(urns);
+
+        assertEquals(expected.size(), set.size());
+        assertEquals(new ArrayList<URN>(expected), new ArrayList<URN>(set));
+        for (URN urn : urns) {
+            assertTrue(set.contains(urn));
+        }
+        assertFalse(set.contains(new URNImpl("urn:global_sku:missing:one")));
+    }
+
+    @Test
+    public void subSet() throws URNCreationException {
+        SortedURNSet set = SortedURNSet.of(Arrays.<URN>asList(
+                new URNImpl("urn:sku:score:en_gb:a"),
+                new URNImpl("urn:sku:score:en_gb:b"),
+                new URNImpl("urn:sku:score:en_gb"),
+                new URNImpl("urn:sku:score:en_gb0:a"),
+                new URNImpl("urn:sku:score:en_ga:a"),
+                new URNImpl("urn:sku:score:fr_fr:a")));
+
+        SortedURNSet subSet = set.subSet(new URNImpl("urn:sku:score:en_gb"));
+        assertEquals(Arrays.<URN>asList(
+                new URNImpl("urn:sku:score:en_gb"),
+                new URNImpl("urn:sku:score:en_gb:a"),
+                new URNImpl("urn:sku:score:en_gb:b")), new ArrayList<URN>(subSet));
+        assertEquals(new URNImpl("urn:sku:score:en_gb:b"), subSet.last());
+        assertEquals(1, subSet.indexOf(new URNImpl("urn:sku:score:en_gb:a")));
+        assertFalse(subSet.contains(new URNImpl("urn:sku:score:fr_fr:a")));
+
+        assertEquals(6, set.subSet(new URNImpl("urn:sku:score")).size());
+        assertTrue(set.subSet(new URNImpl("urn:sku:score:de_de")).isEmpty());
+    }
+
+    @Test
+    public void setOperations() throws URNCreationException {
+        SortedURNSet latest = SortedURNSet.of(Arrays.<URN>asList(
+                new URNImpl("urn:sku:a"), new URNImpl("urn:sku:b"), new URNImpl("urn:sku:c")));
+        SortedURNSet previous = SortedURNSet.of(Arrays.<URN>asList(
+                new URNImpl("urn:sku:b"), new URNImpl("urn:sku:c"), new URNImpl("urn:sku:d")));
+
+        assertEquals(Arrays.<URN>asList(new URNImpl("urn:sku:a"), new URNImpl("urn:sku:b"), new URNImpl("urn:sku:c"),
+                new URNImpl("urn:sku:d")), new ArrayList<URN>(latest.union(previous)));
+        assertEquals(Arrays.<URN>asList(new URNImpl("urn:sku:b"), new URNImpl("urn:sku:c")),
+                new ArrayList<URN>(latest.intersection(previous)));
+        assertEquals(Arrays.<URN>asList(new URNImpl("urn:sku:a")), new ArrayList<URN>(latest.difference(previous)));
+        assertEquals(Arrays.<URN>asList(new URNImpl("urn:sku:d")), new ArrayList<URN>(previous.difference(latest)));
+        assertTrue(latest.difference(latest).isEmpty());
+        assertEquals(latest, latest.union(SortedURNSet.empty()));
+    }
+
+    private static String randomSection(Random random) {
+        String alphabet = "ab0.-_";
+        StringBuilder builder = new StringBuilder();
+        int length = 1 + random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            if (c == '.' && builder.length() > 0 && builder.charAt(builder.length() - 1) == '.') {
+                c = 'a';
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class URNBatchParserTest {
+
+    Path filePath = Paths.get(System.getProperty("java.io.tmpdir") + "/batchParserTest.txt");
+
+    @After
+    public void doAfter() throws Exception {
+        Files.deleteIfExists(filePath);
+    }
+
+    @Test
+    public void parseLines() throws URNCreationException {
+        URNBatchParser.Result result = new URNBatchParser(2, 2).parse(Arrays.asList(
+                "urn:sku:a", "URN:SKU:B", "", "urn:sku", "urn:sku:c", "urn:sku:a..b"));
+
+        assertEquals(Arrays.<URN>asList(new URNImpl("urn:sku:a"), new URNImpl("urn:sku:b"), new URNImpl("urn:sku:c")), result.getURNs());
+        assertEquals(6, result.getLineCount());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(4, result.getFailures().get(0).getLineNumber());
+        assertEquals("urn:sku", result.getFailures().get(0).getLine());
+        assertEquals("URN does not have any values", result.getFailures().get(0).getReason());
+        assertEquals(6, result.getFailures().get(1).getLineNumber());
+        assertEquals("Consecutive dots at position 9", result.getFailures().get(1).getReason());
+    }
+
+    @Test
+    public void parseLargeFile() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            lines.add(i % 1000 == 999 ? "urn:sku:invalid value " + i : "urn:global_sku:score:en_gb:sku" + i);
+        }
+        Files.write(filePath, lines, Charset.forName("UTF-8"));
+
+        URNBatchParser.Result result = new URNBatchParser(4, 1000).parse(filePath);
+
+        assertEquals(20000, result.getLineCount());
+        assertEquals(19980, result.getURNs().size());
+        assertEquals(new URNImpl("urn:global_sku:score:en_gb:sku0"), result.getURNs().get(0));
+        assertEquals(new URNImpl("urn:global_sku:score:en_gb:sku19998"), result.getURNs().get(19979));
+        assertEquals(20, result.getFailures().size());
+        for (int i = 0; i < 20; i++) {
+            URNBatchParser.Failure failure = result.getFailures().get(i);
+            assertEquals(1000 * (i + 1), failure.getLineNumber());
+            assertEquals("urn:sku:invalid value " + (1000 * i + 999), failure.getLine());
+            assertEquals("Invalid character ' ' at position 15", failure.getReason());
+        }
+    }
+
+    @Test
+    public void parseFileWithWindowsLineEndingsAndUnicode() throws Exception {
+        Files.write(filePath, "urn:sku:a\r\nurn:sku:\u00e7\r\nurn:sku:b".getBytes("UTF-8"));
+
+        URNBatchParser.Result result = new URNBatchParser().parse(filePath);
+
+        assertEquals(Arrays.<URN>asList(new URNImpl("urn:sku:a"), new URNImpl("urn:sku:b")), result.getURNs());
+        assertEquals(1, result.getFailures().size());
+        assertEquals("urn:sku:\u00e7", result.getFailures().get(0).getLine());
+        assertEquals(2, result.getFailures().get(0).getLineNumber());
+    }
+
+    @Test
+    public void parseStream() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append(i == 4321 ? "xyz:sku:a" : "urn:sku:" + i).append('\n');
+        }
+        URNBatchParser.Result result = new URNBatchParser(3, 500)
+                .parse(new ByteArrayInputStream(content.toString().getBytes("UTF-8")));
+
+        assertEquals(4999, result.getURNs().size());
+        assertEquals(new URNImpl("urn:sku:4999"), result.getURNs().get(4998));
+        assertEquals(4322, result.getFailures().get(0).getLineNumber());
+        assertEquals("URN string does not start with \"urn:\"", result.getFailures().get(0).getReason());
+    }
+
+    @Test
+    public void parseEmptyFile() throws Exception {
+        Files.write(filePath, new byte[0]);
+        URNBatchParser.Result result = new URNBatchParser().parse(filePath);
+        assertTrue(result.getURNs().isEmpty());
+        assertFalse(result.hasFailures());
+    }
+}
@@ -0,0 +1,105 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import org.junit.Test;
+
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class URNFactoryTest {
+
+    @Test
+    public void createReturnsSharedInstance() throws URNCreationException {
+        URNFactory factory = new URNFactory();
+        URN urn = factory.create("urn:global_sku:score:en_gb");
+
+        assertEquals(new URNImpl("urn:global_sku:score:en_gb"), urn);
+        assertSame(urn, factory.create("urn:global_sku:score:en_gb"));
+        assertEquals(1, factory.getHitCount());
+        assertEquals(1, factory.getMissCount());
+    }
+
+    @Test
+    public void createResolvesCaseVariantsToCanonicalInstance() throws URNCreationException {
+        URNFactory factory = new URNFactory();
+        URN urn = factory.create("urn:global_sku:score:en_gb");
+
+        assertSame(urn, factory.create("URN:GLOBAL_SKU:SCORE:EN_GB"));
+        assertSame(urn, factory.create("global_sku", "score", "en_GB"));
+        assertSame(urn, factory.create(Paths.get("/repo"), Paths.get("/repo/global_sku/score/en_gb")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws URNCreationException {
+        URNFactory factory = new URNFactory(16);
+        for (int i = 0; i < 1000; i++) {
+            factory.create("urn:sku:" + i);
+        }
+        assertTrue(factory.size() <= 16);
+        assertEquals(1000 - factory.size(), factory.getEvictionCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedInsteadOfOldest() throws URNCreationException {
+        // 32 entries in 16 segments, so every segment holds 2 URNs
+        URNFactory factory = new URNFactory(32);
+        String[] sameSegment = sameSegmentKeys(3);
+        URN first = factory.create(sameSegment[0]);
+        URN second = factory.create(sameSegment[1]);
+
+        assertSame(first, factory.create(sameSegment[0]));
+        factory.create(sameSegment[2]);
+
+        assertEquals(1, factory.getEvictionCount());
+        assertSame(first, factory.create(sameSegment[0]));
+        assertNotSame(second, factory.create(sameSegment[1]));
+    }
+
+    @Test
+    public void caseVariantOfCachedURNIsHit() throws URNCreationException {
+        URNFactory factory = new URNFactory();
+        factory.create("urn:global_sku:score:en_gb");
+        factory.create("URN:GLOBAL_SKU:SCORE:EN_GB");
+
+        assertEquals(1, factory.getMissCount());
+        assertEquals(1, factory.getHitCount());
+    }
+
+    /**
+     * Finds URN strings falling into the same segment, spreading hashes the same way as the factory
+     */
+    private static String[] sameSegmentKeys(int count) {
+        String[] keys = new String[count];
+        int found = 0;
+        for (int i = 0; found < count; i++) {
+            String key = "urn:sku:" + i;
+            int hash = key.hashCode();
+            hash ^= (hash >>> 16);
+            if ((hash & 15) == 0) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    @Test(expected = URNCreationException.class)
+    public void create_invalidString() throws URNCreationException {
+        new URNFactory().create("urn:sku");
+    }
+
+    @Test(expected = URNCreationException.class)
+    public void create_nullString() throws URNCreationException {
+        new URNFactory().create((String) null);
+    }
+
+    @Test
+    public void create_invalidStringIsNotCached() {
+        URNFactory factory = new URNFactory();
+        try {
+            factory.create("urn:sku:a..b");
+            fail("Invalid URN should not be created");
+        } catch (URNCreationException e) {
+            assertEquals(0, factory.size());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.Member;
+import com.sony.ebs.octopus3.commons.serialization.HazelcastSerializers;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class URNPartitionerTest {
+
+    @Test
+    public void partitionKey() throws URNCreationException {
+        URN urn = new URNImpl("urn:global_sku:score:en_gb:kdl-40w605");
+        assertEquals("global_sku", new URNPartitioner(1).partitionKey(urn));
+        assertEquals("global_sku:score:en_gb", new URNPartitioner(3).partitionKey(urn));
+        assertEquals("global_sku:score:en_gb:kdl-40w605", new URNPartitioner(10).partitionKey(urn));
+    }
+
+    @Test
+    public void relatedURNsLandOnSameNode() throws URNCreationException {
+        URNPartitioner partitioner = new URNPartitioner(3, Arrays.asList("node1", "node2", "node3"));
+        String node = partitioner.nodeFor(new URNImpl("urn:global_sku:score:en_gb:a"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(node, partitioner.nodeFor(new URNImpl("urn:global_sku:score:en_gb:sku" + i)));
+        }
+    }
+
+    @Test
+    public void removingNodeOnlyMovesItsKeys() throws URNCreationException {
+        URNPartitioner partitioner = new URNPartitioner(3, Arrays.asList("node1", "node2", "node3"));
+        List<URN> urns = new ArrayList<URN>();
+        for (int i = 0; i < 1000; i++) {
+            urns.add(new URNImpl("urn:global_sku:score:locale" + i + ":a"));
+        }
+        Map<String, List<URN>> before = partitioner.assign(urns);
+        assertEquals(3, before.size());
+        for (List<URN> assigned : before.values()) {
+            assertTrue("Keys are not spread evenly: " + assigned.size(), assigned.size() > 200);
+        }
+
+        partitioner.removeNode("node2");
+        for (String node : Arrays.asList("node1", "node3")) {
+            for (URN urn : before.get(node)) {
+                assertEquals(node, partitioner.nodeFor(urn));
+            }
+        }
+        for (URN urn : before.get("node2")) {
+            assertNotEquals("node2", partitioner.nodeFor(urn));
+        }
+
+        partitioner.removeNode("node1");
+        partitioner.removeNode("node3");
+        assertNull(partitioner.nodeFor(urns.get(0)));
+    }
+
+    @Test
+    public void sameAssignmentOnEveryInstance() throws URNCreationException {
+        URN urn = new URNImpl("urn:global_sku:score:en_gb:a");
+        URNPartitioner first = new URNPartitioner(3, Arrays.asList("node1", "node2", "node3"));
+        URNPartitioner second = new URNPartitioner(3, Arrays.asList("node3", "node1", "node2"));
+        assertEquals(first.nodeFor(urn), second.nodeFor(urn));
+    }
+
+    @Test
+    public void colocatedInHazelcastCluster() throws URNCreationException, IOException {
+        int port = freePort();
+        Config config = new Config();
+        config.setProperty("hazelcast.logging.type", "none");
+        config.setProperty("hazelcast.health.monitoring.level", "OFF");
+        config.getGroupConfig().setName("urn-partitioner-test");
+        config.getNetworkConfig().setPort(port).setPortAutoIncrement(true);
+        config.getNetworkConfig().getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).addMember("127.0.0.1:" + port).addMember("127.0.0.1:" + (port + 1));
+        HazelcastSerializers.register(config.getSerializationConfig());
+
+        HazelcastInstance member1 = Hazelcast.newHazelcastInstance(config);
+        HazelcastInstance member2 = Hazelcast.newHazelcastInstance(config);
+        try {
+            assertEquals(2, member1.getCluster().getMembers().size());
+
+            URNPartitioner partitioner = new URNPartitioner(3);
+            IMap<URNPartitionKey, String> map = member1.getMap("skus");
+            for (String locale : Arrays.asList("en_gb", "fr_fr", "de_de", "es_es")) {
+                Set<Member> owners = new HashSet<Member>();
+                for (int i = 0; i < 20; i++) {
+                    URNPartitionKey key = partitioner.keyFor(new URNImpl("urn:global_sku:score:" + locale + ":sku" + i));
+                    map.put(key, locale);
+                    owners.add(member1.getPartitionService().getPartition(key).getOwner());
+                }
+                assertEquals("URNs of locale [" + locale + "] are not co-located", 1, owners.size());
+            }
+
+            IMap<URNPartitionKey, String> remote = member2.getMap("skus");
+            URNPartitionKey key = partitioner.keyFor(new URNImpl("urn:global_sku:score:fr_fr:sku3"));
+            assertEquals("fr_fr", remote.get(key));
+            assertEquals(80, remote.size());
+            assertEquals(80, map.localKeySet().size() + remote.localKeySet().size());
+        } finally {
+            member2.getLifecycleService().shutdown();
+            member1.getLifecycleService().shutdown();
+        }
+    }
+
+    /**
+     * @return port which is free at the moment, so parallel builds do not clash on a fixed one
+     */
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.sony.ebs.octopus3.commons.urn;
 
+import org.apache.commons.lang.StringUtils;
 import org.junit.Test;
 
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
 
 import static org.junit.Assert.*;
 
@@ -114,6 +118,45 @@ public class URNTest {
         assertFalse(urn.validateURN("urn:sku:a:a..b:b"));
     }
 
+    @Test
+    public void parserMatchesRegexp() {
+        Pattern pattern = Pattern.compile(URNImpl.REGEXP_URN);
+        String alphabet = "urnURN::::..abcXYZ019-_+%/ \\<>\u0131\u0130\u212a";
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder candidate = new StringBuilder(random.nextInt(4) == 0 ? "" : "urn:");
+            int length = random.nextInt(14);
+            for (int j = 0; j < length; j++) {
+                candidate.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String urnStr = candidate.toString();
+            boolean expected = pattern.matcher(urnStr).matches();
+            URNParser.Sections sections = URNParser.parse(urnStr);
+
+            assertEquals("Parser and regexp disagree on [" + urnStr + "]", expected, sections != null);
+            if (expected) {
+                String[] split = urnStr.toLowerCase(Locale.ENGLISH).split(URN.URN_DELIMITER);
+                assertEquals("URN string is wrong for [" + urnStr + "]", urnStr.toLowerCase(Locale.ENGLISH), sections.urn);
+                assertEquals("Section count is wrong for [" + urnStr + "]", split.length - 1, sections.count());
+                for (int j = 0; j < sections.count(); j++) {
+                    assertEquals("Section is wrong for [" + urnStr + "]", split[j + 1], sections.get(j));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parserMatchesRegexpForEveryCharacter() {
+        Pattern pattern = Pattern.compile(URNImpl.REGEXP_URN);
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            String value = "urn:sku:a" + c + "b";
+            String prefix = "ur" + c + ":sku:a";
+            assertEquals("Parser and regexp disagree on [" + value + "]", pattern.matcher(value).matches(), URNParser.parse(value) != null);
+            assertEquals("Parser and regexp disagree on [" + prefix + "]", pattern.matcher(prefix).matches(), URNParser.parse(prefix) != null);
+        }
+    }
+
     // ============================
     // ERROR CONDITIONS
     // ============================
@@ -188,15 +231,165 @@ public class URNTest {
         new URNImpl(Paths.get("/"), null);
     }
 
+    @Test
+    public void valuesAreReadOnlyView() throws URNCreationException {
+        URN urn = new URNImpl("urn:sku:a:b:c");
+        assertEquals(3, urn.getValues().size());
+        assertEquals("c", urn.getValues().get(2));
+        try {
+            urn.getValues().add("d");
+            fail("Values of URN should not be modified");
+        } catch (UnsupportedOperationException e) {
+            assertEquals("urn:sku:a:b:c", urn.toString());
+        }
+    }
+
+    @Test
+    public void sameStringRepresentationForAllConstructors() throws URNCreationException {
+        URN urn = new URNImpl("URN:SKU:A:b");
+        assertSame(urn.toString(), urn.toString());
+        assertSame(urn.toPath(), urn.toPath());
+        assertEquals(urn.toString().hashCode(), urn.hashCode());
+        assertEquals(new URNImpl("sku", "a", "B"), urn);
+        assertEquals(new URNImpl(new URNImpl("sku", "A"), "b"), urn);
+    }
+
     @Test
     public void getParent() throws URNCreationException {
         assertEquals(new URNImpl("urn:sku:a:b").getParent(), new URNImpl("urn:sku:a"));
     }
 
+    @Test
+    public void getParentOfParent() throws URNCreationException {
+        URN parent = new URNImpl("urn:sku:a:b:c").getParent().getParent();
+        assertEquals(new URNImpl("urn:sku:a"), parent);
+        assertEquals(Arrays.asList("a"), parent.getValues());
+        assertEquals(Paths.get("/sku/a").toString(), parent.toPath());
+    }
+
+    @Test
+    public void child() throws URNCreationException {
+        URN urn = new URNImpl("urn:sku:a").child("B.c").child("d");
+        assertEquals(new URNImpl("urn:sku:a:b.c:d"), urn);
+        assertEquals(Arrays.asList("a", "b.c", "d"), urn.getValues());
+        assertEquals(urn, urn.child("e").getParent());
+    }
+
+    @Test(expected = URNCreationException.class)
+    public void child_invalidValue() throws URNCreationException {
+        new URNImpl("urn:sku:a").child("b..c");
+    }
+
+    @Test(expected = URNCreationException.class)
+    public void child_delimiterInValue() throws URNCreationException {
+        new URNImpl("urn:sku:a").child("b:c");
+    }
+
+    @Test
+    public void createURNByValuesWithParent_delimiterInValue() throws URNCreationException {
+        URN urn = new URNImpl(new URNImpl("urn:sku:a"), "b:c", "d");
+        assertEquals(new URNImpl("urn:sku:a:b:c:d"), urn);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), urn.getValues());
+    }
+
+    @Test
+    public void hierarchyOfOtherImplementations() throws URNCreationException {
+        URN urn = new SimpleURN("sku", "a", "b", "c");
+        assertEquals(new URNImpl("urn:sku:a:b:c:d"), urn.child("d"));
+        List<URN> ancestors = new ArrayList<URN>();
+        for (URN ancestor : urn.ancestors()) {
+            ancestors.add(ancestor);
+        }
+        assertEquals(Arrays.<URN>asList(new URNImpl("urn:sku:a:b"), new URNImpl("urn:sku:a")), ancestors);
+        assertTrue(new SimpleURN("sku", "a").isAncestorOf(urn));
+        assertFalse(urn.isAncestorOf(urn));
+        assertEquals(new URNImpl("urn:sku:a:b"), urn.commonPrefix(new URNImpl("urn:sku:a:b:d")));
+        assertSame(urn, urn.commonPrefix(new URNImpl("urn:sku:a:b:c:d")));
+        assertNull(urn.commonPrefix(new URNImpl("urn:global_sku:a")));
+    }
+
+    @Test(expected = URNCreationException.class)
+    public void createURNByValuesWithParent_invalidValue() throws URNCreationException {
+        new URNImpl(new URNImpl("urn:sku:a"), "b", "");
+    }
+
+    @Test
+    public void ancestors() throws URNCreationException {
+        List<URN> ancestors = new ArrayList<URN>();
+        for (URN ancestor : new URNImpl("urn:sku:a:b:c").ancestors()) {
+            ancestors.add(ancestor);
+        }
+        assertEquals(Arrays.<URN>asList(new URNImpl("urn:sku:a:b"), new URNImpl("urn:sku:a")), ancestors);
+        assertFalse(new URNImpl("urn:sku:a").ancestors().iterator().hasNext());
+    }
+
+    @Test
+    public void isAncestorOf() throws URNCreationException {
+        URN urn = new URNImpl("urn:sku:a:b");
+        assertTrue(urn.isAncestorOf(new URNImpl("urn:sku:a:b:c")));
+        assertTrue(urn.isAncestorOf(new URNImpl("urn:sku:a:b:c:d")));
+        assertFalse(urn.isAncestorOf(urn));
+        assertFalse(urn.isAncestorOf(new URNImpl("urn:sku:a:bc")));
+        assertFalse(urn.isAncestorOf(new URNImpl("urn:sku:a")));
+        assertFalse(urn.isAncestorOf(null));
+    }
+
+    @Test
+    public void commonPrefix() throws URNCreationException {
+        URN urn = new URNImpl("urn:sku:a:b:c");
+        assertEquals(new URNImpl("urn:sku:a:b"), urn.commonPrefix(new URNImpl("urn:sku:a:b:d")));
+        assertEquals(new URNImpl("urn:sku:a"), urn.commonPrefix(new URNImpl("urn:sku:a:bc")));
+        assertSame(urn, urn.commonPrefix(new URNImpl("urn:sku:a:b:c:d")));
+        assertEquals(new URNImpl("urn:sku:a:b"), new URNImpl("urn:sku:a:b").commonPrefix(urn));
+        assertNull(urn.commonPrefix(new URNImpl("urn:sku:x")));
+        assertNull(urn.commonPrefix(new URNImpl("urn:global_sku:a")));
+    }
+
     @Test(expected = URNCreationException.class)
     public void getParent_parentNotUrn() throws URNCreationException {
         URN validUrn = new URNImpl("urn:sku:a");
 
         validUrn.getParent();
     }
+
+    /**
+     * Implements only the abstract methods, like URNs outside of this library
+     */
+    private static class SimpleURN implements URN {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String type;
+        private final List<String> values;
+
+        SimpleURN(String type, String... values) {
+            this.type = type;
+            this.values = Arrays.asList(values);
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public List<String> getValues() {
+            return values;
+        }
+
+        @Override
+        public String toPath() {
+            return "/" + type + "/" + StringUtils.join(values, "/");
+        }
+
+        @Override
+        public URN getParent() throws URNCreationException {
+            return new URNImpl(type, values.subList(0, values.size() - 1));
+        }
+
+        @Override
+        public String toString() {
+            return URN_PREFIX + URN_DELIMITER + type + URN_DELIMITER + StringUtils.join(values, URN_DELIMITER);
+        }
+    }
 }
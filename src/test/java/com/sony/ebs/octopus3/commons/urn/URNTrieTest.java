@@ -0,0 +1,115 @@
+package com.sony.ebs.octopus3.commons.urn;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class URNTrieTest {
+
+    URNTrie trie;
+
+    @Before
+    public void doBefore() throws URNCreationException {
+        trie = new URNTrie();
+        trie.add(new URNImpl("urn:global_sku:score:en_gb:a"));
+        trie.add(new URNImpl("urn:global_sku:score:en_gb:b"));
+        trie.add(new URNImpl("urn:global_sku:score:fr_fr:a"));
+        trie.add(new URNImpl("urn:global_sku:score"));
+        trie.add(new URNImpl("urn:flix_sku:score:en_gb:a"));
+    }
+
+    @Test
+    public void addAndLookup() throws URNCreationException {
+        assertEquals(5, trie.size());
+        assertFalse(trie.add(new URNImpl("urn:global_sku:score:en_gb:a")));
+        assertEquals(5, trie.size());
+
+        assertTrue(trie.contains(new URNImpl("urn:global_sku:score:en_gb:a")));
+        assertTrue(trie.contains(new URNImpl("urn:global_sku:score")));
+        assertFalse(trie.contains(new URNImpl("urn:global_sku:score:en_gb")));
+        assertFalse(trie.contains(new URNImpl("urn:global_sku:score:en_gb:c")));
+        assertFalse(trie.contains(new URNImpl("urn:sku:a")));
+    }
+
+    @Test
+    public void getReturnsIndexedInstance() throws URNCreationException {
+        URN urn = new URNImpl("urn:sku:x");
+        trie.add(urn);
+        assertSame(urn, trie.get(new URNImpl("urn:sku:x")));
+    }
+
+    @Test
+    public void countAndChildren() throws URNCreationException {
+        assertEquals(4, trie.count("global_sku"));
+        assertEquals(4, trie.count(new URNImpl("urn:global_sku:score")));
+        assertEquals(2, trie.count(new URNImpl("urn:global_sku:score:en_gb")));
+        assertEquals(0, trie.count(new URNImpl("urn:global_sku:other")));
+
+        assertEquals(new HashSet<String>(Arrays.asList("en_gb", "fr_fr")),
+                new HashSet<String>(trie.children(new URNImpl("urn:global_sku:score"))));
+        assertEquals(2, trie.childCount(new URNImpl("urn:global_sku:score")));
+        assertEquals(Arrays.asList("score"), trie.children("global_sku"));
+        assertTrue(trie.children(new URNImpl("urn:sku:a")).isEmpty());
+    }
+
+    @Test
+    public void prefixIteration() throws URNCreationException {
+        Set<URN> urns = new HashSet<URN>();
+        for (URN urn : trie.prefixedBy(new URNImpl("urn:global_sku:score"))) {
+            urns.add(urn);
+        }
+        assertEquals(new HashSet<URN>(Arrays.<URN>asList(
+                new URNImpl("urn:global_sku:score:en_gb:a"),
+                new URNImpl("urn:global_sku:score:en_gb:b"),
+                new URNImpl("urn:global_sku:score:fr_fr:a"),
+                new URNImpl("urn:global_sku:score"))), urns);
+
+        int count = 0;
+        for (URN ignored : trie.ofType("flix_sku")) {
+            count++;
+        }
+        assertEquals(1, count);
+        assertFalse(trie.prefixedBy(new URNImpl("urn:sku:a")).iterator().hasNext());
+    }
+
+    @Test
+    public void removePrunesEmptyNodes() throws URNCreationException {
+        assertTrue(trie.remove(new URNImpl("urn:global_sku:score:fr_fr:a")));
+        assertFalse(trie.remove(new URNImpl("urn:global_sku:score:fr_fr:a")));
+        assertFalse(trie.remove(new URNImpl("urn:global_sku:score:en_gb")));
+
+        assertEquals(4, trie.size());
+        assertEquals(Arrays.asList("en_gb"), trie.children(new URNImpl("urn:global_sku:score")));
+
+        assertTrue(trie.remove(new URNImpl("urn:flix_sku:score:en_gb:a")));
+        assertEquals(0, trie.count("flix_sku"));
+        assertTrue(trie.children("flix_sku").isEmpty());
+    }
+
+    @Test
+    public void largeFanOut() throws URNCreationException {
+        URN locale = new URNImpl("urn:global_sku:score:de_de");
+        for (int i = 0; i < 1000; i++) {
+            trie.add(new URNImpl(locale, "sku" + i));
+        }
+        assertEquals(1000, trie.childCount(locale));
+        assertEquals(1000, trie.count(locale));
+        for (int i = 0; i < 1000; i += 2) {
+            trie.remove(new URNImpl(locale, "sku" + i));
+        }
+        assertEquals(500, trie.count(locale));
+        assertTrue(trie.contains(new URNImpl(locale, "sku1")));
+        assertFalse(trie.contains(new URNImpl(locale, "sku0")));
+
+        int count = 0;
+        for (URN ignored : trie) {
+            count++;
+        }
+        assertEquals(505, count);
+    }
+}